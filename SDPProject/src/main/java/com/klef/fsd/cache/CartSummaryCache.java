@@ -0,0 +1,82 @@
+package com.klef.fsd.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.klef.fsd.dto.CartSummaryDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+
+/**
+ * Cart totals per buyer, kept until that buyer's cart changes.
+ *
+ * The cart service reads through it and drops a buyer's entry on every mutation; a catalog change
+ * drops everything, since prices and deleted products move the totals of carts nobody touched.
+ * Invalidation inside a transaction is repeated after commit, so a summary loaded from the rows as
+ * they were before the commit does not outlive it. A load that overlaps any invalidation is returned
+ * to its caller but not kept. Least recently read buyers are evicted beyond the size limit.
+ */
+@Component
+public class CartSummaryCache {
+
+	private final int maxEntries;
+	// Guarded by this object's monitor
+	private final LinkedHashMap<Integer, CartSummaryDTO> summaries;
+	private long generation;
+
+	public CartSummaryCache(@Value("${cart.summary.cache-size:10000}") int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("cart.summary.cache-size must be positive");
+		}
+		this.maxEntries = maxEntries;
+		this.summaries = new LinkedHashMap<>(256, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CartSummaryDTO> eldest) {
+				return size() > CartSummaryCache.this.maxEntries;
+			}
+		};
+	}
+
+	public synchronized CartSummaryDTO get(int buyerId) {
+		return summaries.get(buyerId);
+	}
+
+	// Taken before loading; put() keeps the load only if nothing was invalidated since
+	public synchronized long generation() {
+		return generation;
+	}
+
+	public synchronized void put(int buyerId, CartSummaryDTO summary, long loadedAt) {
+		if (generation == loadedAt) {
+			summaries.put(buyerId, summary);
+		}
+	}
+
+	public void invalidate(int buyerId) {
+		evict(buyerId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					evict(buyerId);
+				}
+			});
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onCatalogChanged(ProductCatalogEvent event) {
+		summaries.clear();
+		generation++;
+	}
+
+	private synchronized void evict(int buyerId) {
+		summaries.remove(buyerId);
+		generation++;
+	}
+}
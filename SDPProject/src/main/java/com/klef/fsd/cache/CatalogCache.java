@@ -0,0 +1,267 @@
+package com.klef.fsd.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.CatalogReloadedEvent;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.CategoryNames;
+import com.klef.fsd.repository.ProductRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory copy of the product catalog as DTOs, with secondary indexes by category and farmer.
+ *
+ * The cache holds either the whole catalog or nothing: the indexes can only answer "all products
+ * of category X" if no product is missing. Catalogs above catalog.cache.max-size are therefore not
+ * cached at all and isReady() returns false so callers fall back to the database; the size is
+ * checked again every TTL, so a catalog that shrinks back under the limit is cached again. Entries
+ * are written through from ProductCatalogEvents and the whole catalog is reloaded once the TTL
+ * expires, to pick up rows changed outside the application. That reload runs on a background
+ * thread while the current maps keep serving, so no request waits for it. A reload that finds
+ * different rows publishes a CatalogReloadedEvent, so views derived from the catalog follow it.
+ */
+@Component
+public class CatalogCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${catalog.cache.max-size:50000}")
+	private int maxSize;
+
+	@Value("${catalog.cache.ttl:10m}")
+	private Duration ttl;
+
+	// Replaced as a whole on reload; individual writes are serialized on this object's monitor
+	private volatile ConcurrentSkipListMap<Integer, ProductDTO> byId = new ConcurrentSkipListMap<>();
+	private volatile Map<String, NavigableSet<Integer>> byCategory = new ConcurrentHashMap<>();
+	private volatile Map<Integer, NavigableSet<Integer>> byFarmer = new ConcurrentHashMap<>();
+	// Set by every load attempt, successful or not, so the TTL also paces retries of an oversized catalog
+	private volatile long loadedAt;
+	private volatile boolean loaded;
+	// Bumped by every write, so a load can tell whether it raced one
+	private long generation;
+	private final AtomicBoolean reloading = new AtomicBoolean();
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "catalog-cache");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		reload();
+	}
+
+	/*
+	 * The query runs outside the monitor, so writes are not held up while it reads the table. A write
+	 * committed meanwhile may be missing from the result; the load is then discarded and the current
+	 * maps, which the write did reach, stay in place until the next attempt.
+	 */
+	public void reload() {
+		long startedAt;
+		synchronized (this) {
+			startedAt = generation;
+		}
+		List<ProductDTO> products = productRepository.findAllProductDTOs();
+		if (products.size() > maxSize) {
+			synchronized (this) {
+				clear();
+			}
+			logger.warn("Catalog has {} products, above catalog.cache.max-size={}; serving from the database",
+					products.size(), maxSize);
+			return;
+		}
+		ConcurrentSkipListMap<Integer, ProductDTO> ids = new ConcurrentSkipListMap<>();
+		Map<String, NavigableSet<Integer>> categories = new ConcurrentHashMap<>();
+		Map<Integer, NavigableSet<Integer>> farmers = new ConcurrentHashMap<>();
+		for (ProductDTO p : products) {
+			ids.put(p.getId(), p);
+			index(categories, categoryKey(p.getCategory()), p.getId());
+			index(farmers, p.getFarmer_id(), p.getId());
+		}
+		boolean changed;
+		synchronized (this) {
+			if (generation != startedAt) {
+				loadedAt = System.nanoTime() - ttl.toNanos();
+				return;
+			}
+			// Nothing was derived from an empty or oversized cache, so only a refresh can make views stale
+			changed = loaded && !sameProducts(byId, ids);
+			byId = ids;
+			byCategory = categories;
+			byFarmer = farmers;
+			loadedAt = System.nanoTime();
+			loaded = true;
+		}
+		logger.info("Catalog cache loaded with {} products", products.size());
+		if (changed) {
+			eventPublisher.publishEvent(new CatalogReloadedEvent());
+		}
+	}
+
+	// Callers check this first and query the database when it is false; never waits for a reload
+	public boolean isReady() {
+		if (System.nanoTime() - loadedAt > ttl.toNanos() && reloading.compareAndSet(false, true)) {
+			executor.execute(() -> {
+				try {
+					reload();
+				} catch (RuntimeException e) {
+					logger.warn("Catalog cache reload failed; keeping the current state", e);
+				} finally {
+					reloading.set(false);
+				}
+			});
+		}
+		return loaded;
+	}
+
+	public List<ProductDTO> getAll() {
+		return new ArrayList<>(byId.values());
+	}
+
+	public ProductDTO get(int id) {
+		return byId.get(id);
+	}
+
+	public List<ProductDTO> getByCategory(String category) {
+		return collect(byCategory.get(categoryKey(category)));
+	}
+
+	public List<ProductDTO> getByFarmer(int farmerId) {
+		return collect(byFarmer.get(farmerId));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onCatalogChanged(ProductCatalogEvent event) {
+		generation++;
+		for (Integer id : event.getRemovedIds()) {
+			remove(id);
+		}
+		for (ProductDTO product : event.getUpserted()) {
+			put(product);
+		}
+	}
+
+	public synchronized void put(ProductDTO product) {
+		generation++;
+		if (!loaded) {
+			return;
+		}
+		if (!byId.containsKey(product.getId()) && byId.size() >= maxSize) {
+			// Growing past the limit: drop everything rather than serve an incomplete catalog
+			clear();
+			logger.warn("Catalog grew past catalog.cache.max-size={}; serving from the database", maxSize);
+			return;
+		}
+		ProductDTO previous = byId.put(product.getId(), product);
+		if (previous != null) {
+			unindex(byCategory, categoryKey(previous.getCategory()), previous.getId());
+			unindex(byFarmer, previous.getFarmer_id(), previous.getId());
+		}
+		index(byCategory, categoryKey(product.getCategory()), product.getId());
+		index(byFarmer, product.getFarmer_id(), product.getId());
+	}
+
+	public synchronized void remove(int id) {
+		generation++;
+		ProductDTO previous = byId.remove(id);
+		if (previous != null) {
+			unindex(byCategory, categoryKey(previous.getCategory()), id);
+			unindex(byFarmer, previous.getFarmer_id(), id);
+		}
+	}
+
+	// Caller holds the monitor
+	private void clear() {
+		loaded = false;
+		loadedAt = System.nanoTime();
+		byId = new ConcurrentSkipListMap<>();
+		byCategory = new ConcurrentHashMap<>();
+		byFarmer = new ConcurrentHashMap<>();
+	}
+
+	private static boolean sameProducts(Map<Integer, ProductDTO> current, Map<Integer, ProductDTO> reloaded) {
+		if (current.size() != reloaded.size()) {
+			return false;
+		}
+		for (ProductDTO r : reloaded.values()) {
+			ProductDTO c = current.get(r.getId());
+			if (c == null || c.getVersion() != r.getVersion() || c.getCost() != r.getCost()
+					|| c.getFarmer_id() != r.getFarmer_id() || !Objects.equals(c.getName(), r.getName())
+					|| !Objects.equals(c.getCategory(), r.getCategory())
+					|| !Objects.equals(c.getDescription(), r.getDescription())
+					|| !Objects.equals(c.getImageVersion(), r.getImageVersion())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private List<ProductDTO> collect(NavigableSet<Integer> ids) {
+		if (ids == null) {
+			return Collections.emptyList();
+		}
+		List<ProductDTO> result = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			ProductDTO p = byId.get(id);
+			if (p != null) {
+				result.add(p);
+			}
+		}
+		return result;
+	}
+
+	private static <K> void index(Map<K, NavigableSet<Integer>> index, K key, int id) {
+		index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+	}
+
+	private static <K> void unindex(Map<K, NavigableSet<Integer>> index, K key, int id) {
+		NavigableSet<Integer> ids = index.get(key);
+		if (ids != null) {
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	// Same key as category_table, so categories differing only in case or spacing are one category
+	private static String categoryKey(String category) {
+		return CategoryNames.key(category);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
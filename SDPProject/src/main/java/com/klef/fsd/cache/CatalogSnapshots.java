@@ -0,0 +1,205 @@
+package com.klef.fsd.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.CatalogReloadedEvent;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.CategoryNames;
+import com.klef.fsd.service.ProductService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Catalog listings serialized ahead of time, as raw and gzipped JSON, for the full catalog and for
+ * every category.
+ *
+ * Serving a listing is then a copy of a ready byte array. A catalog change drops the snapshots at
+ * once, so nobody is served a listing older than their own write, and schedules one debounced
+ * regeneration in the background; until it finishes the getters return null and callers build the
+ * response the regular way. A CatalogCache reload that picked up rows changed outside the
+ * application does the same.
+ */
+@Component
+public class CatalogSnapshots {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshots.class);
+
+	// Keys that cannot collide with a (trimmed, lower-cased) category
+	private static final String ALL = "\u0000all";
+	private static final String NO_PRODUCTS = "\u0000none";
+
+	public static final class Snapshot {
+		private final byte[] json;
+		private final byte[] gzip;
+		private final String etag;
+		private final String gzipEtag;
+
+		Snapshot(byte[] json, byte[] gzip, String hash) {
+			this.json = json;
+			this.gzip = gzip;
+			this.etag = "\"" + hash + "\"";
+			this.gzipEtag = "\"" + hash + "-gz\"";
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public byte[] getGzip() {
+			return gzip;
+		}
+
+		// Strong validators, one per representation
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getGzipEtag() {
+			return gzipEtag;
+		}
+	}
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${catalog.snapshot.rebuild-delay:500ms}")
+	private Duration rebuildDelay;
+
+	// null while a regeneration is pending; both fields are written under this object's monitor
+	private volatile Map<String, Snapshot> snapshots;
+	private long generation;
+	private final AtomicBoolean rebuildPending = new AtomicBoolean();
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "catalog-snapshots");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		executor.execute(this::rebuild);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(ProductCatalogEvent event) {
+		invalidate();
+	}
+
+	@EventListener
+	public void onCatalogReloaded(CatalogReloadedEvent event) {
+		invalidate();
+	}
+
+	private void invalidate() {
+		synchronized (this) {
+			snapshots = null;
+			generation++;
+		}
+		if (rebuildPending.compareAndSet(false, true)) {
+			executor.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public Snapshot getAll() {
+		Map<String, Snapshot> current = snapshots;
+		return current != null ? current.get(ALL) : null;
+	}
+
+	// An unknown category has a snapshot too: the empty list
+	public Snapshot getCategory(String category) {
+		Map<String, Snapshot> current = snapshots;
+		if (current == null) {
+			return null;
+		}
+		Snapshot snapshot = current.get(categoryKey(category));
+		return snapshot != null ? snapshot : current.get(NO_PRODUCTS);
+	}
+
+	void rebuild() {
+		// Cleared first so a change arriving mid-build schedules another pass
+		rebuildPending.set(false);
+		long startedAt;
+		synchronized (this) {
+			startedAt = generation;
+		}
+		try {
+			List<ProductDTO> products = productService.viewallProductDTOs();
+			Map<String, List<ProductDTO>> byCategory = new HashMap<>();
+			for (ProductDTO p : products) {
+				byCategory.computeIfAbsent(categoryKey(p.getCategory()), k -> new ArrayList<>()).add(p);
+			}
+
+			Map<String, Snapshot> built = new HashMap<>(byCategory.size() * 2 + 4);
+			built.put(ALL, snapshot(products));
+			built.put(NO_PRODUCTS, snapshot(List.of()));
+			for (Map.Entry<String, List<ProductDTO>> e : byCategory.entrySet()) {
+				built.put(e.getKey(), snapshot(e.getValue()));
+			}
+			synchronized (this) {
+				// A change published while building has scheduled the next pass, and this result may miss it
+				if (generation != startedAt) {
+					return;
+				}
+				snapshots = built;
+			}
+			logger.info("Catalog snapshots built: {} products, {} categories", products.size(), byCategory.size());
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Catalog snapshot rebuild failed; listings are served uncached", e);
+		}
+	}
+
+	private Snapshot snapshot(List<ProductDTO> products) throws IOException {
+		byte[] json = objectMapper.writeValueAsBytes(products);
+		ByteArrayOutputStream gz = new ByteArrayOutputStream(json.length / 4 + 64);
+		try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+			out.write(json);
+		}
+		return new Snapshot(json, gz.toByteArray(), sha256(json));
+	}
+
+	private static String sha256(byte[] data) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data), 0, 16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Same key as category_table, so categories differing only in case or spacing are one category
+	private static String categoryKey(String category) {
+		return CategoryNames.key(category);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
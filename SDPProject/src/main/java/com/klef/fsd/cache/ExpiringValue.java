@@ -0,0 +1,64 @@
+package com.klef.fsd.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A single lazily loaded value that is reloaded once it is older than its TTL.
+ *
+ * Reads of a fresh value never lock. When the value has expired, one caller reloads it while the
+ * others wait for that result instead of all hitting the database at once. invalidate() forces the
+ * next read to reload; a load that overlaps an invalidation is returned to its caller but not kept.
+ */
+public final class ExpiringValue<T> {
+
+	private static final class Loaded<T> {
+		final T value;
+		final long loadedAt;
+
+		Loaded(T value, long loadedAt) {
+			this.value = value;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	private final Supplier<T> loader;
+	private final long ttlNanos;
+	private volatile Loaded<T> current;
+	private final AtomicLong generation = new AtomicLong();
+
+	public ExpiringValue(Duration ttl, Supplier<T> loader) {
+		this.loader = loader;
+		this.ttlNanos = ttl.toNanos();
+	}
+
+	public T get() {
+		Loaded<T> loaded = current;
+		if (isFresh(loaded)) {
+			return loaded.value;
+		}
+		synchronized (this) {
+			loaded = current;
+			if (isFresh(loaded)) {
+				return loaded.value;
+			}
+			long startedAt = generation.get();
+			long now = System.nanoTime();
+			T value = loader.get();
+			if (generation.get() == startedAt) {
+				current = new Loaded<>(value, now);
+			}
+			return value;
+		}
+	}
+
+	public void invalidate() {
+		generation.incrementAndGet();
+		current = null;
+	}
+
+	private boolean isFresh(Loaded<T> loaded) {
+		return loaded != null && System.nanoTime() - loaded.loadedAt < ttlNanos;
+	}
+}
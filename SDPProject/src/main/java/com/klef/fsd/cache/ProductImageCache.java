@@ -0,0 +1,336 @@
+package com.klef.fsd.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.klef.fsd.dto.ProductDTO;
+
+/**
+ * LRU cache of product image bytes kept outside the Java heap.
+ *
+ * Memory is carved from direct ByteBuffer slabs into fixed 64KB pages, so the footprint is
+ * bounded by a byte budget and freed pages are reused instead of waiting for GC. Entries are
+ * keyed by product id, image version and variant width, so a product whose image changed is looked
+ * up under a new key and can never be served stale bytes; the old entries are dropped when the
+ * product is updated or deleted, and when their file is collected from the store.
+ */
+@Component
+public class ProductImageCache {
+
+	private static final int PAGE_SIZE = 64 * 1024;
+	private static final int PAGES_PER_SLAB = 64; // 4MB slabs
+
+	private static final class Entry {
+		final int productId;
+		final String hash;
+		final int[] pages;
+		final long length;
+		int pins;
+		boolean evicted;
+
+		Entry(int productId, String hash, int[] pages, long length) {
+			this.productId = productId;
+			this.hash = hash;
+			this.pages = pages;
+			this.length = length;
+		}
+	}
+
+	private final int maxPages;
+	private final long maxEntryBytes;
+	// Written under the lock; readers only touch slabs of pages they pinned under the same lock
+	private final ByteBuffer[] slabs;
+	private int slabCount;
+	private int[] freePages = new int[0];
+	private int freeCount;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public ProductImageCache(@Value("${product.image.cache.max-size:256MB}") DataSize maxSize,
+			@Value("${product.image.cache.max-entry-size:4MB}") DataSize maxEntrySize) {
+		this.maxPages = (int) Math.max(PAGES_PER_SLAB, maxSize.toBytes() / PAGE_SIZE);
+		this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxSize.toBytes());
+		this.slabs = new ByteBuffer[(maxPages + PAGES_PER_SLAB - 1) / PAGES_PER_SLAB];
+	}
+
+	/**
+	 * Returns the bytes of a product's image, or of its variant of the given width, as a Resource,
+	 * from the cache when possible. On a miss file is read with a FileChannel straight into cache
+	 * pages; files above the entry limit bypass the cache.
+	 */
+	public Resource get(int productId, String hash, Integer width, Path file, long length) throws IOException {
+		String key = productId + ":" + ProductDTO.imageVersionOf(hash) + (width != null ? ":" + width : "");
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return new CachedResource(entry, file);
+			}
+			misses++;
+		}
+		if (length > maxEntryBytes) {
+			return new FileSystemResource(file);
+		}
+		Entry loaded = load(productId, hash, file, length);
+		if (loaded == null) {
+			return new FileSystemResource(file);
+		}
+		synchronized (this) {
+			Entry previous = entries.put(key, loaded);
+			if (previous != null) {
+				release(previous);
+			}
+		}
+		return new CachedResource(loaded, file);
+	}
+
+	// Drops the original and every variant of an image that was deleted from the store
+	public synchronized void invalidate(String hash) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.hash.equals(hash)) {
+				it.remove();
+				release(entry);
+			}
+		}
+	}
+
+	// Drops every image version and variant cached for a product that was updated or deleted
+	public synchronized void invalidateProduct(int productId) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.productId == productId) {
+				it.remove();
+				release(entry);
+			}
+		}
+	}
+
+	public synchronized Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("hits", hits);
+		stats.put("misses", misses);
+		stats.put("evictions", evictions);
+		stats.put("entries", entries.size());
+		stats.put("bytesUsed", (long) (slabCount * PAGES_PER_SLAB - freeCount) * PAGE_SIZE);
+		stats.put("bytesMax", (long) maxPages * PAGE_SIZE);
+		return stats;
+	}
+
+	private Entry load(int productId, String hash, Path file, long length) throws IOException {
+		int needed = (int) ((length + PAGE_SIZE - 1) / PAGE_SIZE);
+		int[] pages = allocate(needed);
+		if (pages == null) {
+			return null;
+		}
+		// The pages are not reachable from the map yet, so they can be filled without the lock
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long remaining = length;
+			for (int page : pages) {
+				ByteBuffer buf = page(page);
+				buf.limit((int) Math.min(PAGE_SIZE, remaining));
+				while (buf.hasRemaining()) {
+					if (channel.read(buf) < 0) {
+						throw new IOException("Image file shorter than expected: " + file);
+					}
+				}
+				remaining -= PAGE_SIZE;
+			}
+		} catch (IOException e) {
+			synchronized (this) {
+				free(pages);
+			}
+			throw e;
+		}
+		return new Entry(productId, hash, pages, length);
+	}
+
+	private synchronized int[] allocate(int needed) {
+		if (needed > maxPages) {
+			return null;
+		}
+		while (freeCount < needed && slabCount < slabs.length) {
+			addSlab();
+		}
+		// Evict least recently used entries; pages of entries still being streamed are freed later
+		Iterator<Entry> lru = entries.values().iterator();
+		while (freeCount < needed && lru.hasNext()) {
+			Entry victim = lru.next();
+			lru.remove();
+			evictions++;
+			release(victim);
+		}
+		if (freeCount < needed) {
+			return null;
+		}
+		int[] pages = new int[needed];
+		for (int i = 0; i < needed; i++) {
+			pages[i] = freePages[--freeCount];
+		}
+		return pages;
+	}
+
+	private void addSlab() {
+		int first = slabCount * PAGES_PER_SLAB;
+		slabs[slabCount++] = ByteBuffer.allocateDirect(PAGE_SIZE * PAGES_PER_SLAB);
+		if (freePages.length < first + PAGES_PER_SLAB) {
+			freePages = Arrays.copyOf(freePages, first + PAGES_PER_SLAB);
+		}
+		for (int i = PAGES_PER_SLAB - 1; i >= 0; i--) {
+			freePages[freeCount++] = first + i;
+		}
+	}
+
+	// Caller holds the lock
+	private void release(Entry entry) {
+		entry.evicted = true;
+		if (entry.pins == 0) {
+			free(entry.pages);
+		}
+	}
+
+	private void free(int[] pages) {
+		for (int page : pages) {
+			freePages[freeCount++] = page;
+		}
+	}
+
+	private synchronized boolean pin(Entry entry) {
+		if (entry.evicted) {
+			return false;
+		}
+		entry.pins++;
+		return true;
+	}
+
+	private synchronized void unpin(Entry entry) {
+		if (--entry.pins == 0 && entry.evicted) {
+			free(entry.pages);
+		}
+	}
+
+	// A view of one page; slabs are never released so the view stays valid
+	private ByteBuffer page(int page) {
+		ByteBuffer slab = slabs[page / PAGES_PER_SLAB];
+		int offset = (page % PAGES_PER_SLAB) * PAGE_SIZE;
+		return slab.slice(offset, PAGE_SIZE);
+	}
+
+	/**
+	 * Streams an entry's pages to the response. If the entry is evicted before the response is
+	 * written the file is read instead, since its pages may already belong to another image.
+	 */
+	private final class CachedResource extends AbstractResource {
+		private final Entry entry;
+		private final Path file;
+
+		CachedResource(Entry entry, Path file) {
+			this.entry = entry;
+			this.file = file;
+		}
+
+		@Override
+		public String getDescription() {
+			return "cached image [" + file + "]";
+		}
+
+		@Override
+		public long contentLength() {
+			return entry.length;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			if (!pin(entry)) {
+				return Files.newInputStream(file);
+			}
+			return new PagesInputStream(entry);
+		}
+	}
+
+	private final class PagesInputStream extends InputStream {
+		private final Entry entry;
+		private long pos;
+		private boolean closed;
+
+		PagesInputStream(Entry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public int read() {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (pos >= entry.length) {
+				return -1;
+			}
+			int inPage = (int) (pos % PAGE_SIZE);
+			int n = (int) Math.min(Math.min(len, PAGE_SIZE - inPage), entry.length - pos);
+			page(entry.pages[(int) (pos / PAGE_SIZE)]).get(inPage, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		/**
+		 * Writes the remaining pages to the servlet response as direct buffer slices, so a hit is
+		 * sent from off-heap memory without passing through a heap array. Other streams, such as a
+		 * mock response in tests, get the plain copy loop.
+		 */
+		@Override
+		public long transferTo(OutputStream out) throws IOException {
+			if (!(out instanceof CoyoteOutputStream response)) {
+				return super.transferTo(out);
+			}
+			long start = pos;
+			while (pos < entry.length) {
+				int inPage = (int) (pos % PAGE_SIZE);
+				int n = (int) Math.min(PAGE_SIZE - inPage, entry.length - pos);
+				response.write(page(entry.pages[(int) (pos / PAGE_SIZE)]).slice(inPage, n));
+				pos += n;
+			}
+			return pos - start;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, entry.length - pos));
+			pos += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				unpin(entry);
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.klef.fsd.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts references for images stored before image_reference existed, including those the legacy
+ * Blob migration has just written (hence it runs after the other startup runners). Images that
+ * already have a row are left alone, so this is a no-op once every image is counted.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ImageReferenceBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageReferenceBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        int counted = jdbcTemplate.update(
+                "INSERT INTO image_reference (image_hash, image_type, image_size, image_ref_count) "
+                        + "SELECT p.product_image_hash, MAX(p.product_image_type), MAX(p.product_image_size), COUNT(*) "
+                        + "FROM product_table p WHERE p.product_image_hash IS NOT NULL AND p.product_deleted = false "
+                        + "AND NOT EXISTS (SELECT 1 FROM image_reference r WHERE r.image_hash = p.product_image_hash) "
+                        + "GROUP BY p.product_image_hash");
+        if (counted > 0) {
+            logger.info("Counted references for {} stored images", counted);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.klef.fsd.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.klef.fsd.model.Category;
+import com.klef.fsd.service.CategoryService;
+
+/**
+ * Links products that predate category_table (or were written by an older instance during a
+ * rolling deploy) to their category row. Runs one UPDATE per distinct label, so it stays cheap
+ * however many products share a category, and does nothing once every product is linked.
+ */
+@Component
+public class ProductCategoryBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCategoryBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Override
+    public void run(String... args) {
+        List<String> labels = jdbcTemplate.queryForList(
+                "SELECT DISTINCT product_category FROM product_table WHERE category_id IS NULL", String.class);
+        int linked = 0;
+        for (String label : labels) {
+            if (label == null || label.isBlank()) {
+                continue;
+            }
+            Category category = categoryService.resolve(label);
+            // Only the link is written: the label and change version stay as clients last saw them
+            linked += jdbcTemplate.update(
+                    "UPDATE product_table SET category_id = ? WHERE category_id IS NULL AND product_category = ?",
+                    category.getId(), label);
+        }
+        if (linked > 0) {
+            logger.info("Linked {} products to {} categories", linked, labels.size());
+        }
+    }
+}
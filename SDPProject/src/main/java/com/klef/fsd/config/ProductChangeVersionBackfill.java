@@ -0,0 +1,79 @@
+package com.klef.fsd.config;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.service.CatalogVersionService;
+
+/**
+ * Gives products that predate change versions (or were written by an older instance during a
+ * rolling deploy) a real version, so /product/changes reports them to clients that already synced.
+ */
+@Component
+public class ProductChangeVersionBackfill implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeVersionBackfill.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Override
+    public void run(String... args) {
+        int backfilled = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<Integer> ids = jdbcTemplate.queryForList(
+                        "SELECT product_id FROM product_table WHERE product_change_version = 0 ORDER BY product_id LIMIT ?",
+                        Integer.class, BATCH_SIZE);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                long first = catalogVersionService.reserve(ids.size());
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                jdbcTemplate.batchUpdate(
+                        "UPDATE product_table SET product_change_version = ?, product_updated_at = COALESCE(product_updated_at, ?) "
+                                + "WHERE product_id = ? AND product_change_version = 0",
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                ps.setLong(1, first + i);
+                                ps.setTimestamp(2, now);
+                                ps.setInt(3, ids.get(i));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return ids.size();
+                            }
+                        });
+                return ids.size();
+            });
+            backfilled += batch;
+        } while (batch == BATCH_SIZE);
+
+        if (backfilled > 0) {
+            logger.info("Assigned change versions to {} products", backfilled);
+        }
+    }
+}
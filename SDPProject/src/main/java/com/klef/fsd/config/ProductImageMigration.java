@@ -0,0 +1,134 @@
+package com.klef.fsd.config;
+
+import java.io.InputStream;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.klef.fsd.service.ImageStorageService;
+import com.klef.fsd.service.StoredImage;
+
+/**
+ * Migration of the legacy product_table.product_image Blob column into the filesystem image
+ * store, run at every startup while the column exists. The column is first made nullable, since
+ * Product no longer writes it and inserts would otherwise fail, and then every Blob without a
+ * stored copy is copied. Rows are copied one at a time so only a single image is ever held by the
+ * driver, and the Blobs are left in place, so instances still on the old version keep serving them
+ * during a rolling deploy. Once everything is copied a startup only costs two metadata reads and
+ * one indexed count.
+ *
+ * Dropping the column is a separate, manual step: with product.image.migration.drop-legacy-column
+ * set, the column is dropped only once every Blob has been copied and every copied file is present
+ * in the store. Run it only after the image directory is confirmed to be on persistent storage.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ProductImageMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageMigration.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Value("${product.image.migration.drop-legacy-column:false}")
+    private boolean dropLegacyColumn;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Boolean nullable = legacyColumnNullable();
+        if (nullable == null) {
+            return;
+        }
+        // The original schema declared the Blob NOT NULL and ddl-auto=update never relaxes it
+        if (!nullable) {
+            jdbcTemplate.execute("ALTER TABLE product_table MODIFY product_image LONGBLOB NULL");
+            logger.info("Made the legacy product_image column nullable");
+        }
+
+        int migrated = 0;
+        List<Integer> ids;
+        do {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT product_id FROM product_table WHERE product_image IS NOT NULL AND product_image_hash IS NULL LIMIT ?",
+                    Integer.class, BATCH_SIZE);
+            for (Integer id : ids) {
+                migrateRow(id);
+                migrated++;
+            }
+        } while (!ids.isEmpty());
+
+        if (migrated > 0) {
+            logger.info("Copied {} product images out of product_table", migrated);
+        }
+
+        if (dropLegacyColumn) {
+            dropLegacyColumn();
+        }
+    }
+
+    private void dropLegacyColumn() {
+        Integer pending = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_table WHERE product_image IS NOT NULL AND product_image_hash IS NULL",
+                Integer.class);
+        List<String> hashes = jdbcTemplate.queryForList(
+                "SELECT DISTINCT product_image_hash FROM product_table WHERE product_image_hash IS NOT NULL", String.class);
+        long missing = hashes.stream().filter(hash -> !imageStorageService.exists(hash)).count();
+        if (pending != 0 || missing != 0) {
+            logger.warn("Legacy image column kept: {} images not copied, {} image files missing from the store",
+                    pending, missing);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE product_table DROP COLUMN product_image");
+        logger.info("Verified {} image files and dropped the legacy Blob column", hashes.size());
+    }
+
+    private void migrateRow(int id) {
+        StoredImage image = jdbcTemplate.query("SELECT product_image FROM product_table WHERE product_id = ?",
+                rs -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream in = rs.getBinaryStream(1)) {
+                        // Legacy images were always served as JPEG
+                        return imageStorageService.store(in, "image/jpeg");
+                    } catch (java.io.IOException e) {
+                        throw new IllegalStateException("Could not migrate image of product " + id, e);
+                    }
+                }, id);
+        if (image == null) {
+            return;
+        }
+        jdbcTemplate.update(
+                "UPDATE product_table SET product_image_hash = ?, product_image_size = ?, product_image_type = ? WHERE product_id = ?",
+                image.getHash(), image.getSize(), image.getContentType(), id);
+    }
+
+    // null when the column has been dropped
+    private Boolean legacyColumnNullable() {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, "product_table", "product_image")) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.klef.fsd.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * Upload limits are set per servlet, so /product/import gets a second DispatcherServlet over the
+ * same application context with the large bulk-import limits. Every other endpoint keeps the
+ * spring.servlet.multipart limits. The exact-path mapping takes precedence over the default
+ * servlet's "/" mapping, and the controllers, filters and CORS settings are shared.
+ */
+@Configuration
+public class ProductImportServletConfig {
+
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> productImportServlet(WebApplicationContext context,
+            @Value("${product.import.max-file-size:512MB}") DataSize maxFileSize,
+            @Value("${product.import.max-request-size:1GB}") DataSize maxRequestSize) {
+        ServletRegistrationBean<DispatcherServlet> registration = new ServletRegistrationBean<>(
+                new DispatcherServlet(context), "/product/import");
+        registration.setName("productImportServlet");
+        registration.setLoadOnStartup(1);
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setMaxFileSize(maxFileSize);
+        factory.setMaxRequestSize(maxRequestSize);
+        // Parts go straight to disk, like the default servlet's
+        factory.setFileSizeThreshold(DataSize.ofBytes(0));
+        registration.setMultipartConfig(factory.createMultipartConfig());
+        return registration;
+    }
+}
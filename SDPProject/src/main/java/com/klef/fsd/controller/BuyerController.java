@@ -5,13 +5,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.klef.fsd.dto.BuyerHomeDTO;
 import com.klef.fsd.model.Buyer;
+import com.klef.fsd.service.BuyerHomeService;
 import com.klef.fsd.service.BuyerService;
 
 @RestController
@@ -22,12 +25,20 @@ public class BuyerController {
 	@Autowired
 	private BuyerService buyerService;
 
+	@Autowired
+	private BuyerHomeService buyerHomeService;
+
 	@GetMapping("/")
 	public String home() {
 
 		return "LL-Cart Home Page";
 	}
 
+	@GetMapping("/home/{buyerId}")
+	public ResponseEntity<BuyerHomeDTO> homeFeed(@PathVariable int buyerId) {
+		return ResponseEntity.ok(buyerHomeService.getHomeFeed(buyerId));
+	}
+
 	@PostMapping("/registration")
 	public ResponseEntity<String> buyerRegistration(@RequestBody Buyer buyer) {
 		try {
@@ -15,7 +15,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.klef.fsd.dto.CartBatchRequestDTO;
 import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
 import com.klef.fsd.dto.ProductDTO;
 import com.klef.fsd.model.Cart;
 import com.klef.fsd.service.CartService;
@@ -25,39 +27,34 @@ import com.klef.fsd.service.CartService;
 @RequestMapping("/cart")
 public class CartController {
 
+    private static final int MAX_BATCH_OPERATIONS = 50;
+
     @Autowired
     private CartService cartService;
 
     @PostMapping("/add")
     public ResponseEntity<CartDTO> addToCart(@RequestBody Cart cart) {
         try {
-            Cart savedCart = cartService.addToCart(cart);
-            if (savedCart == null) {
-                return ResponseEntity.badRequest().body(null);
-            }
-
-            // Map Cart to CartDTO
-            CartDTO cartDTO = new CartDTO();
-            cartDTO.setId(savedCart.getCid());
-            cartDTO.setQuantity(savedCart.getQuantity());
-
-            if (savedCart.getProduct() != null) {
-                ProductDTO pdto = new ProductDTO();
-                pdto.setId(savedCart.getProduct().getId());
-                pdto.setName(savedCart.getProduct().getName());
-                pdto.setCategory(savedCart.getProduct().getCategory());
-                pdto.setDescription(savedCart.getProduct().getDescription());
-                pdto.setCost(savedCart.getProduct().getCost());
-                pdto.setFarmer_id(savedCart.getProduct().getFarmer() != null ? savedCart.getProduct().getFarmer().getId() : 0);
-                cartDTO.setProduct(pdto);
-            }
-
-            return ResponseEntity.ok(cartDTO);
+            return ResponseEntity.ok(cartService.addToCart(cart));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody CartBatchRequestDTO request) {
+        List<CartOperationDTO> operations = request.getOperations();
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS) {
+            return ResponseEntity.badRequest()
+                    .body("Error: operations must list between 1 and " + MAX_BATCH_OPERATIONS + " changes");
+        }
+        try {
+            return ResponseEntity.ok(cartService.applyBatch(request.getBuyerId(), operations));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/buyer/{buyerId}")
     public ResponseEntity<List<CartDTO>> getCartItems(@PathVariable int buyerId) {
         List<CartDTO> cartItems = cartService.getCartItemsByBuyerId(buyerId);
@@ -77,6 +74,15 @@ public class CartController {
         }
     }
 
+    @GetMapping("/summary/{buyerId}")
+    public ResponseEntity<?> getCartSummary(@PathVariable int buyerId) {
+        try {
+            return ResponseEntity.ok(cartService.getCartSummary(buyerId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @DeleteMapping("/remove/{cartId}")
     public ResponseEntity<String> removeCartItem(@PathVariable int cartId) {
         try {
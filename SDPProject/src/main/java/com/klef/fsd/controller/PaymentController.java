@@ -100,15 +100,8 @@ public class PaymentController {
                 }
             }
 
-            // Calculate total amount
-            double totalAmount = cartItems.stream()
-                    .mapToDouble(item -> {
-                        if (item != null && item.getProduct() != null) {
-                            return item.getProduct().getCost() * item.getQuantity();
-                        }
-                        return 0.0;
-                    })
-                    .sum();
+            // Total amount from the cart summary, computed by the database and cached per buyer
+            double totalAmount = cartService.getCartSummary(buyerId).getTotalAmount();
 
             if (totalAmount <= 0) {
                 response.put("success", false);
@@ -225,7 +218,7 @@ public class PaymentController {
 
             // Create orders for each cart item
             for (com.klef.fsd.dto.CartDTO cartItem : cartItems) {
-                Product product = productRepository.findById(cartItem.getProduct().getId())
+                Product product = productRepository.findByIdAndDeletedFalse(cartItem.getProduct().getId())
                         .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + cartItem.getProduct().getId()));
 
                 // Validate product has a farmer
@@ -1,37 +1,86 @@
 package com.klef.fsd.controller;
 
-import java.sql.Blob;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import com.klef.fsd.cache.CatalogSnapshots;
+import com.klef.fsd.cache.ProductImageCache;
+import com.klef.fsd.dto.BulkUpdateItemDTO;
+import com.klef.fsd.dto.BulkUpdateRequestDTO;
+import com.klef.fsd.dto.FacetsDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductChangesDTO;
 import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.dto.ProductDetailDTO;
+import com.klef.fsd.dto.ProductPageDTO;
+import com.klef.fsd.dto.SuggestionDTO;
 import com.klef.fsd.model.Product;
+import com.klef.fsd.search.CatalogFacets;
+import com.klef.fsd.search.ProductSearchIndex;
+import com.klef.fsd.search.ProductSuggester;
 import com.klef.fsd.model.Farmer;
+import com.klef.fsd.service.ProductImportService;
 import com.klef.fsd.service.ProductService;
 import com.klef.fsd.service.FarmerService;
+import com.klef.fsd.service.ImageStorageService;
+import com.klef.fsd.service.ImageVariantService;
+import com.klef.fsd.service.StoredImage;
 
 @RestController
 @CrossOrigin("*")
 @RequestMapping("/product")
 public class ProductController {
+	private static final int MAX_BATCH_IDS = 200;
+	private static final int MAX_BULK_UPDATES = 1000;
+
 	@Autowired
 	private ProductService productService;
 	@Autowired
 	private FarmerService farmerservice;
+	@Autowired
+	private ImageStorageService imageStorageService;
+	@Autowired
+	private ImageVariantService imageVariantService;
+	@Autowired
+	private ProductImageCache productImageCache;
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+	@Autowired
+	private ProductSuggester productSuggester;
+	@Autowired
+	private CatalogFacets catalogFacets;
+	@Autowired
+	private CatalogSnapshots catalogSnapshots;
+	@Autowired
+	private ProductImportService productImportService;
 
 	@PostMapping("/addproduct")
 	public ResponseEntity<String> addProduct(@RequestParam String category, @RequestParam String name,
@@ -39,24 +88,66 @@ public class ProductController {
 			@RequestParam("productimage") MultipartFile file, @RequestParam int fid) {
 		try {
 			Farmer farmer = farmerservice.getFarmerById(fid);
-			byte[] bytes = file.getBytes();
-			Blob blob = new javax.sql.rowset.serial.SerialBlob(bytes);
+			StoredImage image = storeUpload(file);
 			Product p = new Product();
 			p.setCategory(category);
 			p.setCost(cost);
 			p.setDescription(description);
-			p.setImage(blob);
+			setImage(p, image);
 			p.setFarmer(farmer);
 			p.setName(name);
 
 			String output = productService.addProduct(p);
+			imageVariantService.generateVariantsAsync(image.getHash());
 			return ResponseEntity.ok(output);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Error: " + e.getMessage());
 		} catch (Exception e) {
 			return ResponseEntity.status(500).body("Error: " + e.getMessage());
 		}
 
 	}
 
+	@PostMapping("/import")
+	public ResponseEntity<?> importProducts(@RequestParam("file") MultipartFile file, @RequestParam int fid,
+			@RequestParam(required = false) String format,
+			@RequestParam(value = "images", required = false) MultipartFile images) {
+		if (format == null) {
+			format = importFormatOf(file.getOriginalFilename());
+		}
+		Path zipPath = null;
+		try {
+			ZipFile zip = null;
+			if (images != null && !images.isEmpty()) {
+				// ZipFile reads entries by name from disk instead of buffering the archive
+				zipPath = Files.createTempFile("product-import-", ".zip");
+				images.transferTo(zipPath);
+				zip = new ZipFile(zipPath.toFile());
+			}
+			try (InputStream in = file.getInputStream(); ZipFile closeZip = zip) {
+				return ResponseEntity.ok(productImportService.importProducts(fid, in, format, closeZip));
+			}
+		} catch (ZipException e) {
+			return ResponseEntity.badRequest().body("Error: images is not a valid zip file");
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+		} catch (Exception e) {
+			return ResponseEntity.status(500).body("Error: " + e.getMessage());
+		} finally {
+			if (zipPath != null) {
+				try {
+					Files.deleteIfExists(zipPath);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	private static String importFormatOf(String filename) {
+		String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+		return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? "ndjson" : "csv";
+	}
+
 	@PutMapping("/updateproduct")
 	public ResponseEntity<String> updateProduct(@RequestParam int id, @RequestParam String category, 
 	        @RequestParam String name, @RequestParam String description, @RequestParam double cost,
@@ -76,101 +167,200 @@ public class ProductController {
 	        p.setFarmer(farmer);
 	        
 	        // Only update image if a new one is provided
+	        StoredImage image = null;
 	        if (file != null && !file.isEmpty()) {
-	            byte[] bytes = file.getBytes();
-	            Blob blob = new javax.sql.rowset.serial.SerialBlob(bytes);
-	            p.setImage(blob);
+	            image = storeUpload(file);
+	            setImage(p, image);
 	        }
 
+	        // A failed update discards the upload again, so variants are only made once it is kept
 	        String output = productService.updateProduct(p);
+	        if (image != null) {
+	            imageVariantService.generateVariantsAsync(image.getHash());
+	        }
 	        return ResponseEntity.ok(output);
+	    } catch (ObjectOptimisticLockingFailureException e) {
+	        return ResponseEntity.status(409).body("Error: product was changed by another update, reload and retry");
+	    } catch (IllegalArgumentException e) {
+	        return ResponseEntity.badRequest().body("Error: " + e.getMessage());
 	    } catch (Exception e) {
 	        return ResponseEntity.status(500).body("Error: " + e.getMessage());
 	    }
 	}
 	
+	@PutMapping("/bulk-update")
+	public ResponseEntity<?> bulkUpdate(@RequestBody BulkUpdateRequestDTO request) {
+		List<BulkUpdateItemDTO> updates = request.getUpdates();
+		if (updates == null || updates.isEmpty() || updates.size() > MAX_BULK_UPDATES) {
+			return ResponseEntity.badRequest().body("Error: updates must list between 1 and " + MAX_BULK_UPDATES + " products");
+		}
+		try {
+			return ResponseEntity.ok(productService.bulkUpdate(request.getFarmerId(), updates));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+		}
+	}
+
 	@GetMapping("viewallproducts")
-	public ResponseEntity<List<ProductDTO>> viewallproducts() {
-		List<Product> productList = productService.viewallProducts();
-		List<ProductDTO> productDTOList = new ArrayList<>();
-
-		for (Product p : productList) {
-			ProductDTO dto = new ProductDTO();
-			dto.setId(p.getId());
-			dto.setCategory(p.getCategory());
-			dto.setName(p.getName());
-			dto.setDescription(p.getDescription());
-			dto.setCost(p.getCost());
-			// Null check for farmer
-			if (p.getFarmer() != null) {
-				dto.setFarmer_id(p.getFarmer().getId());
-			} else {
-				dto.setFarmer_id(0); // Default value if farmer is null
-			}
-			productDTOList.add(dto);
+	public ResponseEntity<?> viewallproducts(WebRequest request) {
+		CatalogSnapshots.Snapshot snapshot = catalogSnapshots.getAll();
+		if (snapshot == null) {
+			return ResponseEntity.ok(productService.viewallProductDTOs());
+		}
+		return snapshotResponse(snapshot, request);
+	}
+
+	@GetMapping("catalog")
+	public ResponseEntity<ProductPageDTO> viewCatalog(@RequestParam(defaultValue = "0") int afterId,
+			@RequestParam(defaultValue = "20") int limit, @RequestParam(required = false) String category,
+			@RequestParam(required = false) Double minCost, @RequestParam(required = false) Double maxCost) {
+		if (limit < 1 || limit > 100) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 100");
 		}
+		return ResponseEntity.ok(productService.viewCatalogPage(afterId, limit, category, minCost, maxCost));
+	}
+
+	// Delta sync: call with the nextSince of the previous response; omit since for a full sync
+	@GetMapping("changes")
+	public ResponseEntity<ProductChangesDTO> changes(@RequestParam(defaultValue = "0") long since,
+			@RequestParam(defaultValue = "500") int limit) {
+		if (limit < 1 || limit > 5000) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 5000");
+		}
+		return ResponseEntity.ok(productService.viewChangesSince(since, limit));
+	}
+
+	@GetMapping("search")
+	public ResponseEntity<List<ProductDTO>> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+		if (limit < 1 || limit > 100) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 100");
+		}
+		List<ProductDTO> results = productSearchIndex.search(q, limit).stream()
+				.map(ProductSearchIndex.Hit::getProduct).toList();
+		return ResponseEntity.ok(results);
+	}
 
-		return ResponseEntity.ok(productDTOList);
+	@GetMapping("search/stats")
+	public ResponseEntity<Map<String, Object>> searchStats() {
+		return ResponseEntity.ok(productSearchIndex.stats());
+	}
+
+	@GetMapping("suggest")
+	public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		if (limit < 1 || limit > productSuggester.getMaxResults()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"limit must be between 1 and " + productSuggester.getMaxResults());
+		}
+		return ResponseEntity.ok(productSuggester.suggest(prefix, limit));
+	}
+
+	@GetMapping("facets")
+	public ResponseEntity<FacetsDTO> facets() {
+		return ResponseEntity.ok(catalogFacets.facets());
 	}
 
 	@GetMapping("displayproductimage")
-	public ResponseEntity<byte[]> displayproductimage(@RequestParam int id) throws Exception {
-		Product product = productService.viewProductById(id);
-		byte[] imageBytes = null;
-		imageBytes = product.getImage().getBytes(1, (int) product.getImage().length());
+	public ResponseEntity<Resource> displayproductimage(@RequestParam int id, @RequestParam(required = false) String v,
+			@RequestParam(required = false) Integer size, WebRequest request) throws IOException {
+		StoredImage image = productService.getProductImage(id);
+		if (image == null || image.getHash() == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found for product " + id);
+		}
+
+		Path path = imageStorageService.resolve(image.getHash());
+		if (!Files.exists(path)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not found for product " + id);
+		}
+
+		// Until the requested variant is generated the original is served under the same URL
+		boolean wantsVariant = size != null && imageVariantService.coversWidth(size);
+		Path variant = wantsVariant ? imageVariantService.findVariant(image.getHash(), size) : null;
+		boolean finalContent = !wantsVariant || variant != null;
+
+		// A URL carrying the current version can never change, anything else must revalidate
+		CacheControl cacheControl = finalContent && v != null && v.equals(ProductDTO.imageVersionOf(image.getHash()))
+				? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+				: CacheControl.noCache();
+
+		if (variant != null) {
+			String etag = "\"" + variant.getFileName() + "\"";
+			if (request.checkNotModified(etag, Files.getLastModifiedTime(variant).toMillis())) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+			}
+			MediaType type = variant.toString().endsWith(".png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+			long length = Files.size(variant);
+			return ResponseEntity.ok().contentType(type).cacheControl(cacheControl).contentLength(length)
+					.body(productImageCache.get(id, image.getHash(), size, variant, length));
+		}
 
-		return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(imageBytes);
+		String etag = "\"" + image.getHash() + "\"";
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
 
+		// Answers If-None-Match / If-Modified-Since with 304 from metadata alone
+		if (request.checkNotModified(etag, lastModified)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+		}
+
+		String contentType = image.getContentType();
+		if (contentType == null) {
+			contentType = imageStorageService.probeContentType(image.getHash());
+		}
+		// Range requests are served as 206 partial content by Spring for Resource bodies
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(contentType)).cacheControl(cacheControl)
+				.contentLength(image.getSize()).body(productImageCache.get(id, image.getHash(), null, path, image.getSize()));
+	}
+
+	@GetMapping("imagecache/stats")
+	public ResponseEntity<Map<String, Object>> imageCacheStats() {
+		return ResponseEntity.ok(productImageCache.stats());
 	}
+
 	@GetMapping("/getproduct/{id}")
 	public ResponseEntity<ProductDTO> getProduct(@PathVariable int id) {
-	    Product product = productService.getProductById(id);
-	    if (product == null) {
+	    ProductDTO dto = productService.getProductDTOById(id);
+	    if (dto == null) {
 	        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID " + id);
 	    }
-
-	    // Convert Product to ProductDTO
-	    ProductDTO dto = new ProductDTO();
-	    dto.setId(product.getId());
-	    dto.setCategory(product.getCategory());
-	    dto.setName(product.getName());
-	    dto.setDescription(product.getDescription());
-	    dto.setCost(product.getCost());
-	    // Null check for farmer
-	    if (product.getFarmer() != null) {
-	        dto.setFarmer_id(product.getFarmer().getId());
-	    } else {
-	        dto.setFarmer_id(0); // Default value if farmer is null
-	    }
-
 	    return ResponseEntity.ok(dto);
 	}
 
 
 
 
+	@GetMapping("batch")
+	public ResponseEntity<List<ProductBatchItemDTO>> batch(@RequestParam List<Integer> ids) {
+		if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must list between 1 and " + MAX_BATCH_IDS + " products");
+		}
+		return ResponseEntity.ok(productService.getProductDTOsByIds(ids));
+	}
+
+	@GetMapping("/{id}/detail")
+	public ResponseEntity<ProductDetailDTO> getProductDetail(@PathVariable int id,
+			@RequestParam(required = false) Integer buyerId) {
+		ProductDetailDTO detail = productService.getProductDetail(id, buyerId);
+		if (detail == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID " + id);
+		}
+		return ResponseEntity.ok(detail);
+	}
+
 	@GetMapping("viewproductsbyfarmer/{fid}")
 	public ResponseEntity<List<ProductDTO>> viewProductByFarmer(@PathVariable int fid) {
-		List<Product> products = productService.viewProductsByFarmer(fid);
-		List<ProductDTO> productDTOs = new ArrayList<>();
-
-		for (Product p : products) {
-			ProductDTO dto = new ProductDTO();
-			dto.setId(p.getId());
-			dto.setCategory(p.getCategory());
-			dto.setName(p.getName());
-			dto.setDescription(p.getDescription());
-			dto.setCost(p.getCost());
-			// Null check for farmer
-			if (p.getFarmer() != null) {
-				dto.setFarmer_id(p.getFarmer().getId());
-			} else {
-				dto.setFarmer_id(0); // Default value if farmer is null
-			}
-			productDTOs.add(dto);
+		return ResponseEntity.ok(productService.viewProductDTOsByFarmer(fid)); // ✅ No Blob, no error
+	}
+
+	private StoredImage storeUpload(MultipartFile file) throws IOException {
+		try (InputStream in = file.getInputStream()) {
+			return imageStorageService.storeUpload(in);
 		}
+	}
 
-		return ResponseEntity.ok(productDTOs); // ✅ No Blob, no error
+	private void setImage(Product p, StoredImage image) {
+		p.setImageHash(image.getHash());
+		p.setImageSize(image.getSize());
+		p.setImageContentType(image.getContentType());
 	}
 
 	@DeleteMapping("/deleteproduct/{id}")
@@ -184,29 +374,61 @@ public class ProductController {
 	}
 
 	@GetMapping("categories")
-		 public ResponseEntity<List<ProductDTO>> viewproductsByCategory(@RequestParam String category)
+		 public ResponseEntity<?> viewproductsByCategory(@RequestParam String category, WebRequest request)
 		 {
-		     List<Product> productList = productService.viewProductsByCategory(category);
-		     List<ProductDTO> productDTOList = new ArrayList<>();
-
-		     for (Product p : productList) {
-		         ProductDTO dto = new ProductDTO();
-		         dto.setId(p.getId());
-		         dto.setCategory(p.getCategory());
-		         dto.setName(p.getName());
-		         dto.setDescription(p.getDescription());
-		         dto.setCost(p.getCost());
-		         // Null check for farmer
-		         if (p.getFarmer() != null) {
-		             dto.setFarmer_id(p.getFarmer().getId());
-		         } else {
-		             dto.setFarmer_id(0); // Default value if farmer is null
-		         }
-		         productDTOList.add(dto);
+		     CatalogSnapshots.Snapshot snapshot = catalogSnapshots.getCategory(category);
+		     if (snapshot == null) {
+		         return ResponseEntity.ok(productService.viewProductDTOsByCategory(category));
 		     }
-
-		     return ResponseEntity.ok(productDTOList);
+		     return snapshotResponse(snapshot, request);
 		 }
+
+	// Writes a pre-serialized listing as is, gzipped when the client accepts it
+	private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshots.Snapshot snapshot, WebRequest request) {
+		boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+		String etag = gzip ? snapshot.getGzipEtag() : snapshot.getEtag();
+		if (request.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT_ENCODING)
+					.cacheControl(CacheControl.noCache()).build();
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+				.varyBy(HttpHeaders.ACCEPT_ENCODING).cacheControl(CacheControl.noCache());
+		if (gzip) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+		}
+		return response.body(snapshot.getJson());
+	}
+
+	// RFC 9110: gzip (or x-gzip) listed with a non-zero q-value, or "*" when gzip is not listed itself
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Double gzipQ = null;
+		Double anyQ = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase(Locale.ROOT);
+			double q = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if (name.equals("gzip") || name.equals("x-gzip")) {
+				gzipQ = q;
+			} else if (name.equals("*")) {
+				anyQ = q;
+			}
+		}
+		Double q = gzipQ != null ? gzipQ : anyQ;
+		return q != null && q > 0;
+	}
 	
 	
 }
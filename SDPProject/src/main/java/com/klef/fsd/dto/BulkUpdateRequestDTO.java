@@ -0,0 +1,25 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class BulkUpdateRequestDTO {
+    private int farmerId;
+    private List<BulkUpdateItemDTO> updates;
+
+    // Getters and Setters
+    public int getFarmerId() {
+        return farmerId;
+    }
+
+    public void setFarmerId(int farmerId) {
+        this.farmerId = farmerId;
+    }
+
+    public List<BulkUpdateItemDTO> getUpdates() {
+        return updates;
+    }
+
+    public void setUpdates(List<BulkUpdateItemDTO> updates) {
+        this.updates = updates;
+    }
+}
@@ -0,0 +1,33 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class BulkUpdateResultDTO {
+    private List<ProductDTO> updated; // products as stored after the update, with their new versions
+    private List<Integer> conflicts; // ids not updated: unknown, owned by another farmer, or version changed
+
+    public BulkUpdateResultDTO() {
+    }
+
+    public BulkUpdateResultDTO(List<ProductDTO> updated, List<Integer> conflicts) {
+        this.updated = updated;
+        this.conflicts = conflicts;
+    }
+
+    // Getters and Setters
+    public List<ProductDTO> getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(List<ProductDTO> updated) {
+        this.updated = updated;
+    }
+
+    public List<Integer> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<Integer> conflicts) {
+        this.conflicts = conflicts;
+    }
+}
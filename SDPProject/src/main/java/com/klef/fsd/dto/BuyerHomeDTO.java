@@ -0,0 +1,54 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class BuyerHomeDTO {
+    private List<ProductDTO> newest;
+    private List<ProductDTO> topSellers; // by units ordered
+    private List<CategorySampleDTO> categories;
+    private int cartCount;
+
+    public BuyerHomeDTO() {
+    }
+
+    public BuyerHomeDTO(List<ProductDTO> newest, List<ProductDTO> topSellers, List<CategorySampleDTO> categories,
+            int cartCount) {
+        this.newest = newest;
+        this.topSellers = topSellers;
+        this.categories = categories;
+        this.cartCount = cartCount;
+    }
+
+    // Getters and Setters
+    public List<ProductDTO> getNewest() {
+        return newest;
+    }
+
+    public void setNewest(List<ProductDTO> newest) {
+        this.newest = newest;
+    }
+
+    public List<ProductDTO> getTopSellers() {
+        return topSellers;
+    }
+
+    public void setTopSellers(List<ProductDTO> topSellers) {
+        this.topSellers = topSellers;
+    }
+
+    public List<CategorySampleDTO> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategorySampleDTO> categories) {
+        this.categories = categories;
+    }
+
+    public int getCartCount() {
+        return cartCount;
+    }
+
+    public void setCartCount(int cartCount) {
+        this.cartCount = cartCount;
+    }
+}
@@ -0,0 +1,25 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class CartBatchRequestDTO {
+    private int buyerId;
+    private List<CartOperationDTO> operations; // applied in order, all or none
+
+    // Getters and Setters
+    public int getBuyerId() {
+        return buyerId;
+    }
+
+    public void setBuyerId(int buyerId) {
+        this.buyerId = buyerId;
+    }
+
+    public List<CartOperationDTO> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CartOperationDTO> operations) {
+        this.operations = operations;
+    }
+}
@@ -5,6 +5,17 @@ public class CartDTO {
     private ProductDTO product;
     private int quantity;
 
+    public CartDTO() {
+    }
+
+    // Used by the JPQL constructor projection in CartRepository.findCartDTOsByBuyerId
+    public CartDTO(int id, int quantity, int productId, String name, String category, String description, double cost,
+            Integer farmerId, String imageHash, long version) {
+        this.id = id;
+        this.quantity = quantity;
+        this.product = new ProductDTO(productId, name, category, description, cost, farmerId, imageHash, version);
+    }
+
     // Getters and Setters
     public int getId() {
         return id;
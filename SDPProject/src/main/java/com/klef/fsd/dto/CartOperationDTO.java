@@ -0,0 +1,41 @@
+package com.klef.fsd.dto;
+
+public class CartOperationDTO {
+    private String type; // "add", "update" or "remove"
+    private int productId;
+    private int quantity; // units to add, or the new quantity for an update; ignored by remove
+
+    public CartOperationDTO() {
+    }
+
+    public CartOperationDTO(String type, int productId, int quantity) {
+        this.type = type;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,33 @@
+package com.klef.fsd.dto;
+
+// Totals of one buyer's cart; immutable because the same instance is served from the summary cache
+public class CartSummaryDTO {
+    private final int itemCount;
+    private final int totalQuantity;
+    private final double totalAmount;
+
+    public CartSummaryDTO(int itemCount, int totalQuantity, double totalAmount) {
+        this.itemCount = itemCount;
+        this.totalQuantity = totalQuantity;
+        this.totalAmount = totalAmount;
+    }
+
+    // Aggregate projection: the sums are null for an empty cart
+    public CartSummaryDTO(long itemCount, Long totalQuantity, Double totalAmount) {
+        this((int) itemCount, totalQuantity == null ? 0 : totalQuantity.intValue(),
+                totalAmount == null ? 0 : totalAmount);
+    }
+
+    // Getters
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+}
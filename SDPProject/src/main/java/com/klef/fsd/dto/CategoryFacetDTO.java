@@ -0,0 +1,72 @@
+package com.klef.fsd.dto;
+
+public class CategoryFacetDTO {
+    private String category;
+    private int count;
+    private double minPrice;
+    private double maxPrice;
+    private double medianPrice;
+    private int[] histogram; // product counts per bucket of FacetsDTO.bucketEdges
+
+    public CategoryFacetDTO() {
+    }
+
+    public CategoryFacetDTO(String category, int count, double minPrice, double maxPrice, double medianPrice,
+            int[] histogram) {
+        this.category = category;
+        this.count = count;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.medianPrice = medianPrice;
+        this.histogram = histogram;
+    }
+
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public double getMedianPrice() {
+        return medianPrice;
+    }
+
+    public void setMedianPrice(double medianPrice) {
+        this.medianPrice = medianPrice;
+    }
+
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(int[] histogram) {
+        this.histogram = histogram;
+    }
+}
@@ -0,0 +1,43 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class CategorySampleDTO {
+    private String category;
+    private int count; // products in the whole category, not just the sample
+    private List<ProductDTO> products;
+
+    public CategorySampleDTO() {
+    }
+
+    public CategorySampleDTO(String category, int count, List<ProductDTO> products) {
+        this.category = category;
+        this.count = count;
+        this.products = products;
+    }
+
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<ProductDTO> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductDTO> products) {
+        this.products = products;
+    }
+}
@@ -0,0 +1,53 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class FacetsDTO {
+    private int totalProducts;
+    private double[] bucketEdges; // bucket i is [edges[i], edges[i + 1]); the last one is open-ended
+    private int[] histogram;
+    private List<CategoryFacetDTO> categories;
+
+    public FacetsDTO() {
+    }
+
+    public FacetsDTO(int totalProducts, double[] bucketEdges, int[] histogram, List<CategoryFacetDTO> categories) {
+        this.totalProducts = totalProducts;
+        this.bucketEdges = bucketEdges;
+        this.histogram = histogram;
+        this.categories = categories;
+    }
+
+    // Getters and Setters
+    public int getTotalProducts() {
+        return totalProducts;
+    }
+
+    public void setTotalProducts(int totalProducts) {
+        this.totalProducts = totalProducts;
+    }
+
+    public double[] getBucketEdges() {
+        return bucketEdges;
+    }
+
+    public void setBucketEdges(double[] bucketEdges) {
+        this.bucketEdges = bucketEdges;
+    }
+
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(int[] histogram) {
+        this.histogram = histogram;
+    }
+
+    public List<CategoryFacetDTO> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryFacetDTO> categories) {
+        this.categories = categories;
+    }
+}
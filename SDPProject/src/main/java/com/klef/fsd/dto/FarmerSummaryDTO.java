@@ -0,0 +1,42 @@
+package com.klef.fsd.dto;
+
+// Public farmer details shown next to a product; never carries contact details or credentials
+public class FarmerSummaryDTO {
+    private int id;
+    private String name;
+    private String location;
+
+    public FarmerSummaryDTO() {
+    }
+
+    public FarmerSummaryDTO(int id, String name, String location) {
+        this.id = id;
+        this.name = name;
+        this.location = location;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
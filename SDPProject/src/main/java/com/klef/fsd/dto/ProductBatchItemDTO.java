@@ -0,0 +1,41 @@
+package com.klef.fsd.dto;
+
+public class ProductBatchItemDTO {
+    private int id;
+    private boolean found;
+    private ProductDTO product; // null when not found
+
+    public ProductBatchItemDTO() {
+    }
+
+    public ProductBatchItemDTO(int id, ProductDTO product) {
+        this.id = id;
+        this.found = product != null;
+        this.product = product;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductDTO product) {
+        this.product = product;
+    }
+}
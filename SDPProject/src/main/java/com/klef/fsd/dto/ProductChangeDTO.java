@@ -0,0 +1,66 @@
+package com.klef.fsd.dto;
+
+import java.time.LocalDateTime;
+
+public class ProductChangeDTO {
+    private int id;
+    private long changeVersion;
+    private LocalDateTime updatedAt;
+    private boolean deleted;
+    private ProductDTO product; // null for deletions
+
+    public ProductChangeDTO() {
+    }
+
+    // Used by the JPQL constructor projection in ProductRepository.findChangesSince
+    public ProductChangeDTO(int id, String name, String category, String description, double cost, Integer farmerId,
+            String imageHash, long version, long changeVersion, LocalDateTime updatedAt, boolean deleted) {
+        this.id = id;
+        this.changeVersion = changeVersion;
+        this.updatedAt = updatedAt;
+        this.deleted = deleted;
+        this.product = deleted ? null
+                : new ProductDTO(id, name, category, description, cost, farmerId, imageHash, version);
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductDTO product) {
+        this.product = product;
+    }
+}
@@ -0,0 +1,43 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class ProductChangesDTO {
+    private List<ProductChangeDTO> changes;
+    private long nextSince; // pass as since= on the next call
+    private boolean hasMore; // true when the client should call again right away
+
+    public ProductChangesDTO() {
+    }
+
+    public ProductChangesDTO(List<ProductChangeDTO> changes, long nextSince, boolean hasMore) {
+        this.changes = changes;
+        this.nextSince = nextSince;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<ProductChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ProductChangeDTO> changes) {
+        this.changes = changes;
+    }
+
+    public long getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(long nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -7,6 +7,28 @@ public class ProductDTO {
     private String description;
     private double cost;
     private int farmer_id;
+    private String imageVersion; // pass as displayproductimage?v= to get an immutable, cacheable URL
+    private long version; // optimistic lock version, echo it back in bulk updates
+
+    public ProductDTO() {
+    }
+
+    // Used by JPQL constructor projections so listing queries never load the Product entity
+    public ProductDTO(int id, String name, String category, String description, double cost, Integer farmerId,
+            String imageHash, long version) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.description = description;
+        this.cost = cost;
+        this.farmer_id = farmerId != null ? farmerId : 0;
+        this.imageVersion = imageVersionOf(imageHash);
+        this.version = version;
+    }
+
+    public static String imageVersionOf(String imageHash) {
+        return imageHash != null ? imageHash.substring(0, 16) : null;
+    }
 
     // Getters and Setters
     public int getId() {
@@ -56,4 +78,20 @@ public class ProductDTO {
     public void setFarmer_id(int farmer_id) {
         this.farmer_id = farmer_id;
     }
-}
\ No newline at end of file
+
+    public String getImageVersion() {
+        return imageVersion;
+    }
+
+    public void setImageVersion(String imageVersion) {
+        this.imageVersion = imageVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,84 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class ProductDetailDTO {
+    private ProductDTO product;
+    private FarmerSummaryDTO farmer; // null for products without a farmer
+    private String imageUrl; // versioned, so it can be cached indefinitely
+    private String imageEtag;
+    private List<ProductDTO> related; // same category first, then the same farmer
+    private Boolean inCart; // null when no buyer was given
+    private int cartQuantity;
+
+    public ProductDetailDTO() {
+    }
+
+    // Used by the JPQL constructor projection in ProductRepository.findProductDetail
+    public ProductDetailDTO(int id, String name, String category, String description, double cost, Integer farmerId,
+            String farmerName, String farmerLocation, String imageHash, long version) {
+        this.product = new ProductDTO(id, name, category, description, cost, farmerId, imageHash, version);
+        this.farmer = farmerId != null ? new FarmerSummaryDTO(farmerId, farmerName, farmerLocation) : null;
+        if (imageHash != null) {
+            this.imageUrl = "/product/displayproductimage?id=" + id + "&v=" + ProductDTO.imageVersionOf(imageHash);
+            this.imageEtag = "\"" + imageHash + "\"";
+        }
+    }
+
+    // Getters and Setters
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductDTO product) {
+        this.product = product;
+    }
+
+    public FarmerSummaryDTO getFarmer() {
+        return farmer;
+    }
+
+    public void setFarmer(FarmerSummaryDTO farmer) {
+        this.farmer = farmer;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getImageEtag() {
+        return imageEtag;
+    }
+
+    public void setImageEtag(String imageEtag) {
+        this.imageEtag = imageEtag;
+    }
+
+    public List<ProductDTO> getRelated() {
+        return related;
+    }
+
+    public void setRelated(List<ProductDTO> related) {
+        this.related = related;
+    }
+
+    public Boolean getInCart() {
+        return inCart;
+    }
+
+    public void setInCart(Boolean inCart) {
+        this.inCart = inCart;
+    }
+
+    public int getCartQuantity() {
+        return cartQuantity;
+    }
+
+    public void setCartQuantity(int cartQuantity) {
+        this.cartQuantity = cartQuantity;
+    }
+}
@@ -0,0 +1,33 @@
+package com.klef.fsd.dto;
+
+import java.util.List;
+
+public class ProductPageDTO {
+    private List<ProductDTO> products;
+    private Integer nextCursor; // null when there are no more products
+
+    public ProductPageDTO() {
+    }
+
+    public ProductPageDTO(List<ProductDTO> products, Integer nextCursor) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<ProductDTO> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductDTO> products) {
+        this.products = products;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,41 @@
+package com.klef.fsd.dto;
+
+public class SuggestionDTO {
+    private String text;
+    private String type; // "product" or "category"
+    private int productId; // 0 for categories
+
+    public SuggestionDTO() {
+    }
+
+    public SuggestionDTO(String text, String type, int productId) {
+        this.text = text;
+        this.type = type;
+        this.productId = productId;
+    }
+
+    // Getters and Setters
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+}
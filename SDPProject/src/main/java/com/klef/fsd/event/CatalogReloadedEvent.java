@@ -0,0 +1,9 @@
+package com.klef.fsd.event;
+
+/**
+ * Published by CatalogCache when a reload from the database found products that differ from what
+ * it held, i.e. rows changed outside the application, which no ProductCatalogEvent announced.
+ * Views built from the catalog should be regenerated.
+ */
+public class CatalogReloadedEvent {
+}
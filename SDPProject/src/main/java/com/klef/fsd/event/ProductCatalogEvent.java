@@ -0,0 +1,41 @@
+package com.klef.fsd.event;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.klef.fsd.dto.ProductDTO;
+
+/**
+ * Published by the product write paths after products are added, changed or removed, so the
+ * in-memory catalog views (cache, search index, ...) can update themselves incrementally.
+ */
+public class ProductCatalogEvent {
+
+	private final List<ProductDTO> upserted;
+	private final List<Integer> removedIds;
+
+	private ProductCatalogEvent(List<ProductDTO> upserted, List<Integer> removedIds) {
+		this.upserted = upserted;
+		this.removedIds = removedIds;
+	}
+
+	public static ProductCatalogEvent upserted(Collection<ProductDTO> products) {
+		return new ProductCatalogEvent(List.copyOf(products), List.of());
+	}
+
+	public static ProductCatalogEvent upserted(ProductDTO product) {
+		return new ProductCatalogEvent(List.of(product), List.of());
+	}
+
+	public static ProductCatalogEvent removed(int productId) {
+		return new ProductCatalogEvent(List.of(), List.of(productId));
+	}
+
+	public List<ProductDTO> getUpserted() {
+		return upserted;
+	}
+
+	public List<Integer> getRemovedIds() {
+		return removedIds;
+	}
+}
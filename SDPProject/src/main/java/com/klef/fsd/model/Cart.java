@@ -8,9 +8,11 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "cart_table")
+@Table(name = "cart_table", uniqueConstraints = @UniqueConstraint(name = "uk_cart_buyer_product", columnNames = {
+		"buyer_id", "product_id" }))
 public class Cart {
 
 	@Id
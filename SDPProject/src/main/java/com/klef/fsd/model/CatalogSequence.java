@@ -0,0 +1,33 @@
+package com.klef.fsd.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Named counters advanced with plain SQL by CatalogVersionServiceImpl; mapped so the table is created
+@Entity
+@Table(name = "catalog_sequence")
+public class CatalogSequence {
+	@Id
+	@Column(name = "seq_name", length = 50)
+	private String name;
+	@Column(name = "seq_value", nullable = false)
+	private long value;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	public void setValue(long value) {
+		this.value = value;
+	}
+}
@@ -0,0 +1,48 @@
+package com.klef.fsd.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// One row per distinct category; products refer to it by id. Created on first use by CategoryServiceImpl.
+@Entity
+@Table(name = "category_table")
+public class Category {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "category_id")
+	private int id;
+	// Spelling of the first product that used the category
+	@Column(name = "category_name", nullable = false, length = 100)
+	private String name;
+	// Lower-cased name with whitespace collapsed; labels differing only in case or spacing share a row
+	@Column(name = "category_key", nullable = false, length = 100, unique = true)
+	private String normalizedName;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getNormalizedName() {
+		return normalizedName;
+	}
+
+	public void setNormalizedName(String normalizedName) {
+		this.normalizedName = normalizedName;
+	}
+}
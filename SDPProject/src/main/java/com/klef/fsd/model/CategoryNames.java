@@ -0,0 +1,24 @@
+package com.klef.fsd.model;
+
+import java.util.Locale;
+
+/**
+ * The one normalization rule for category labels. CategoryServiceImpl keys category_table with it
+ * and the in-memory catalog indexes group by it, so labels differing only in case or spacing land in
+ * the same category everywhere.
+ */
+public final class CategoryNames {
+
+	private CategoryNames() {
+	}
+
+	// Trimmed, with inner runs of whitespace collapsed to one space; "" for null
+	public static String clean(String label) {
+		return label == null ? "" : label.trim().replaceAll("\\s+", " ");
+	}
+
+	// The clean label lower-cased, as stored in category_key
+	public static String key(String label) {
+		return clean(label).toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,54 @@
+package com.klef.fsd.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// One row per distinct stored image, counting the live products that show it.
+// Maintained with plain SQL by ImageReferenceServiceImpl; mapped so the table is created.
+@Entity
+@Table(name = "image_reference")
+public class ImageReference {
+	@Id
+	@Column(name = "image_hash", length = 64)
+	private String hash;
+	@Column(name = "image_type", length = 100)
+	private String contentType;
+	@Column(name = "image_size", nullable = false)
+	private long size;
+	@Column(name = "image_ref_count", nullable = false)
+	private int refCount;
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public int getRefCount() {
+		return refCount;
+	}
+
+	public void setRefCount(int refCount) {
+		this.refCount = refCount;
+	}
+}
@@ -1,32 +1,72 @@
 package com.klef.fsd.model;
 
-import java.sql.Blob;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "product_table")
+@Table(name = "product_table", indexes = {
+		@Index(name = "idx_product_change_version", columnList = "product_change_version"),
+		@Index(name = "idx_product_category", columnList = "category_id"),
+		@Index(name = "idx_product_image_hash", columnList = "product_image_hash") })
 public class Product {
 	@Id
 	  @GeneratedValue(strategy = GenerationType.IDENTITY)
 	  @Column(name="product_id")
 	  private int id;
+	  // Display label, kept equal to the category's name; filtering goes through categoryRef
 	  @Column(name="product_category",nullable = false,length = 100)
 	  private String category;
+	  @JsonIgnore
+	  @ManyToOne(fetch = FetchType.LAZY)
+	  @JoinColumn(name = "category_id", foreignKey = @ForeignKey(name = "fk_product_category"))
+	  private Category categoryRef;
 	  @Column(name="product_name",nullable = false,length = 100)
 	  private String name;
 	  @Column(name="product_desc",nullable = false,length = 500)
 	  private String description;
 	  @Column(name="product_cost",nullable = false)
 	  private double cost;
-	  @Column(name="product_image",nullable = false)
-	  private Blob image; // blob - binary large object
+	  // Image bytes live in the filesystem image store, addressed by their SHA-256
+	  @Column(name="product_image_hash",length = 64)
+	  private String imageHash;
+	  @Column(name="product_image_type",length = 100)
+	  private String imageContentType;
+	  @Column(name="product_image_size")
+	  private long imageSize;
+	  // Image as last read from the database, so an update can tell which image it replaces
+	  @JsonIgnore
+	  @Transient
+	  private String loadedImageHash;
+	  
+	  // Bumped by every write, including the JDBC bulk update, so concurrent edits are detected
+	  @Version
+	  @Column(name="product_version",columnDefinition = "bigint not null default 0")
+	  private long version;
+	  
+	  // Catalog-wide, strictly increasing stamp of the last write, for /product/changes delta sync
+	  @Column(name="product_change_version",columnDefinition = "bigint not null default 0")
+	  private long changeVersion;
+	  @Column(name="product_updated_at")
+	  private LocalDateTime updatedAt;
+	  // Deleted products stay as tombstones so syncing clients learn about the deletion
+	  @Column(name="product_deleted",columnDefinition = "boolean not null default false")
+	  private boolean deleted;
 	  
 	  @ManyToOne
 	  @JoinColumn(name = "farmer_id") // Foreign key column
@@ -48,6 +88,23 @@ public class Product {
 		this.category = category;
 	}
 
+	@PostLoad
+	void rememberLoadedImage() {
+		loadedImageHash = imageHash;
+	}
+
+	public String getLoadedImageHash() {
+		return loadedImageHash;
+	}
+
+	public Category getCategoryRef() {
+		return categoryRef;
+	}
+
+	public void setCategoryRef(Category categoryRef) {
+		this.categoryRef = categoryRef;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -72,12 +129,60 @@ public class Product {
 		this.cost = cost;
 	}
 
-	public Blob getImage() {
-		return image;
+	public String getImageHash() {
+		return imageHash;
+	}
+
+	public void setImageHash(String imageHash) {
+		this.imageHash = imageHash;
+	}
+
+	public String getImageContentType() {
+		return imageContentType;
+	}
+
+	public void setImageContentType(String imageContentType) {
+		this.imageContentType = imageContentType;
+	}
+
+	public long getImageSize() {
+		return imageSize;
+	}
+
+	public void setImageSize(long imageSize) {
+		this.imageSize = imageSize;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
+	public LocalDateTime getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(LocalDateTime updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
 	}
 
-	public void setImage(Blob image) {
-		this.image = image;
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
 	}
 
 	public Farmer getFarmer() {
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
 import com.klef.fsd.model.Buyer;
 import com.klef.fsd.model.Cart;
 
@@ -15,13 +17,56 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
 
     List<Cart> findByBuyer(Buyer buyer);
 
+    // One statement for the whole cart: no Cart, Buyer or Product entities are loaded
+    @Query("SELECT new com.klef.fsd.dto.CartDTO(c.cid, c.quantity, p.id, p.name, p.category, p.description, p.cost, "
+            + "f.id, p.imageHash, p.version) "
+            + "FROM Cart c JOIN c.product p LEFT JOIN p.farmer f WHERE c.buyer.id = ?1 ORDER BY c.cid")
+    List<CartDTO> findCartDTOsByBuyerId(int buyerId);
+
+    @Query("SELECT new com.klef.fsd.dto.CartDTO(c.cid, c.quantity, p.id, p.name, p.category, p.description, p.cost, "
+            + "f.id, p.imageHash, p.version) "
+            + "FROM Cart c JOIN c.product p LEFT JOIN p.farmer f WHERE c.buyer.id = ?1 AND p.id = ?2")
+    CartDTO findCartDTOByBuyerIdAndProductId(int buyerId, int productId);
+
+    /*
+     * Adds a product to the cart, or raises the quantity already there, in one statement. Nothing is
+     * written when the product is missing, deleted or has no farmer, or when the buyer already holds
+     * maxItems other products; an unknown buyer fails the buyer_id foreign key.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cart_table (buyer_id, product_id, quantity) "
+            + "SELECT ?1, p.product_id, ?3 FROM product_table p "
+            + "WHERE p.product_id = ?2 AND p.product_deleted = false AND p.farmer_id IS NOT NULL "
+            + "AND (SELECT COUNT(*) FROM cart_table c WHERE c.buyer_id = ?1 AND c.product_id <> ?2) < ?4 "
+            + "ON DUPLICATE KEY UPDATE quantity = LEAST(cart_table.quantity + ?3, ?5)", nativeQuery = true)
+    int upsertQuantity(int buyerId, int productId, int quantity, int maxItems, int maxQuantity);
+
     @Query("SELECT c FROM Cart c WHERE c.buyer.id = ?1 AND c.product.id = ?2")
     Cart findByBuyerIdAndProductId(int buyerId, int productId);
 
+    @Query("SELECT c.quantity FROM Cart c WHERE c.buyer.id = ?1 AND c.product.id = ?2")
+    Integer findQuantityByBuyerIdAndProductId(int buyerId, int productId);
+
+    @Query("SELECT c.buyer.id FROM Cart c WHERE c.cid = ?1")
+    Integer findBuyerIdByCartId(int cartId);
+
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.cid = ?1")
+    int deleteByCartId(int cartId);
+
     @Modifying
     @Query("DELETE FROM Cart c WHERE c.buyer.id = ?1")
     void deleteByBuyerId(int buyerId);
 
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.product.id = ?1")
+    int deleteByProductId(int productId);
+
     @Query("SELECT COUNT(c) FROM Cart c WHERE c.buyer.id = ?1")
     int countByBuyerId(int buyerId);
+
+    // Count, quantity and amount in one aggregate; always one row, zeros for an empty cart
+    @Query("SELECT new com.klef.fsd.dto.CartSummaryDTO(COUNT(c), SUM(c.quantity), SUM(c.quantity * p.cost)) "
+            + "FROM Cart c JOIN c.product p WHERE c.buyer.id = ?1")
+    CartSummaryDTO summarizeByBuyerId(int buyerId);
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.klef.fsd.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.klef.fsd.model.Category;
+
+public interface CategoryRepository extends JpaRepository<Category, Integer> {
+    Optional<Category> findByNormalizedName(String normalizedName);
+}
@@ -1,6 +1,7 @@
 package com.klef.fsd.repository;
 import com.klef.fsd.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -35,4 +36,11 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
            "FROM Order o WHERE o.orderDate >= :startDate " +
            "GROUP BY FUNCTION('date_format', o.orderDate, '%Y-%m')")
     List<Object[]> getAdminMonthlySalesData(@Param("startDate") LocalDateTime startDate);
-}
\ No newline at end of file
+
+    // Units sold per product, used to rank catalog suggestions
+    @Query("SELECT o.product.id, SUM(o.quantity) FROM Order o GROUP BY o.product.id")
+    List<Object[]> getQuantitySoldPerProduct();
+
+    @Query("SELECT o.product.id FROM Order o GROUP BY o.product.id ORDER BY SUM(o.quantity) DESC, o.product.id")
+    List<Integer> findTopSellingProductIds(Pageable pageable);
+}
@@ -1,20 +1,96 @@
 package com.klef.fsd.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.klef.fsd.dto.ProductChangeDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.dto.ProductDetailDTO;
 import com.klef.fsd.model.Product;
 import com.klef.fsd.model.Farmer;
+import com.klef.fsd.service.StoredImage;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer>{
 
-	 public List<Product> findByCategory(String category);
+	 // Deleted products are kept as tombstones for /product/changes; every catalog read filters them out
+	 public List<Product> findByDeletedFalse();
+
+	 public Optional<Product> findByIdAndDeletedFalse(int id);
+
+	 public long countByDeletedFalse();
+
+	 public List<Product> findByCategoryRefIdAndDeletedFalse(int categoryId);
 	 
-	 public List<Product> findByFarmer(Farmer farmer);
+	 public List<Product> findByFarmerAndDeletedFalse(Farmer farmer);
+
+	 // Listing projections: only scalar columns are selected, so the image Blob and Farmer are never loaded
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.deleted = false ORDER BY p.id")
+	 public List<ProductDTO> findAllProductDTOs();
+
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.id = :id AND p.deleted = false")
+	 public ProductDTO findProductDTOById(@Param("id") int id);
+
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.id IN :ids AND p.deleted = false")
+	 public List<ProductDTO> findProductDTOsByIds(@Param("ids") Collection<Integer> ids);
+
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.categoryRef.id = :categoryId AND p.deleted = false ORDER BY p.id")
+	 public List<ProductDTO> findProductDTOsByCategoryId(@Param("categoryId") int categoryId);
+
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p JOIN p.farmer f WHERE f.id = :farmerId AND p.deleted = false ORDER BY p.id")
+	 public List<ProductDTO> findProductDTOsByFarmerId(@Param("farmerId") int farmerId);
+
+	 // Keyset page on product_id: the caller passes the last id it saw instead of an offset
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f " +
+	        "WHERE p.id > :afterId AND p.deleted = false " +
+	        "AND (:categoryId IS NULL OR p.categoryRef.id = :categoryId) " +
+	        "AND (:minCost IS NULL OR p.cost >= :minCost) " +
+	        "AND (:maxCost IS NULL OR p.cost <= :maxCost) " +
+	        "ORDER BY p.id")
+	 public List<ProductDTO> findCatalogPage(@Param("afterId") int afterId, @Param("categoryId") Integer categoryId,
+			 @Param("minCost") Double minCost, @Param("maxCost") Double maxCost, Pageable pageable);
+
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.deleted = false ORDER BY p.id DESC")
+	 public List<ProductDTO> findNewestProductDTOs(Pageable pageable);
+
+	 // Image metadata only, for conditional GETs that must not load the entity or the image
+	 @Query("SELECT new com.klef.fsd.service.StoredImage(p.imageHash, p.imageSize, p.imageContentType) " +
+	        "FROM Product p WHERE p.id = :id AND p.deleted = false")
+	 public StoredImage findImageById(@Param("id") int id);
+
+	 // Product page: the product and its farmer's public details in one joined select
+	 @Query("SELECT new com.klef.fsd.dto.ProductDetailDTO(p.id, p.name, p.category, p.description, p.cost, " +
+	        "f.id, f.name, f.location, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.id = :id AND p.deleted = false")
+	 public ProductDetailDTO findProductDetail(@Param("id") int id);
+
+	 // Products sharing the category (listed first) or the farmer of the given product
+	 @Query("SELECT new com.klef.fsd.dto.ProductDTO(p.id, p.name, p.category, p.description, p.cost, f.id, p.imageHash, p.version) " +
+	        "FROM Product p LEFT JOIN p.farmer f, Product src " +
+	        "WHERE src.id = :id AND p.id <> src.id AND p.deleted = false " +
+	        "AND (p.category = src.category OR f = src.farmer) " +
+	        "ORDER BY CASE WHEN p.category = src.category THEN 0 ELSE 1 END, p.id")
+	 public List<ProductDTO> findRelatedProductDTOs(@Param("id") int id, Pageable pageable);
+
+	 // Everything written after a change version, tombstones included, oldest first
+	 @Query("SELECT new com.klef.fsd.dto.ProductChangeDTO(p.id, p.name, p.category, p.description, p.cost, f.id, " +
+	        "p.imageHash, p.version, p.changeVersion, p.updatedAt, p.deleted) " +
+	        "FROM Product p LEFT JOIN p.farmer f WHERE p.changeVersion > :since ORDER BY p.changeVersion")
+	 public List<ProductChangeDTO> findChangesSince(@Param("since") long since, Pageable pageable);
 	 
 	
 }
@@ -0,0 +1,204 @@
+package com.klef.fsd.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.dto.CategoryFacetDTO;
+import com.klef.fsd.dto.FacetsDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.CategoryNames;
+import com.klef.fsd.service.ProductService;
+
+/**
+ * Per-category counts and price statistics, maintained incrementally from ProductCatalogEvents.
+ *
+ * Each category keeps a sorted multiset of its prices and its histogram bucket counts, so a product
+ * change touches only its own category. The finished CategoryFacetDTO is cached until the category
+ * changes again, which makes a facets request O(categories) rather than O(products).
+ */
+@Component
+public class CatalogFacets {
+
+	private static final Logger logger = LoggerFactory.getLogger(CatalogFacets.class);
+
+	@Autowired
+	private ProductService productService;
+
+	private final double[] edges;
+
+	private static final class Priced {
+		final String category;
+		final double cost;
+
+		Priced(String category, double cost) {
+			this.category = category;
+			this.cost = cost;
+		}
+	}
+
+	private final class Category {
+		final String label;
+		final TreeMap<Double, Integer> prices = new TreeMap<>();
+		final int[] histogram = new int[edges.length];
+		int count;
+		CategoryFacetDTO facet; // null when stale
+
+		Category(String label) {
+			this.label = label;
+		}
+	}
+
+	// Guarded by this
+	private final Map<Integer, Priced> products = new HashMap<>();
+	private final Map<String, Category> categories = new TreeMap<>();
+	private final int[] histogram;
+	// Bumped by every change, so a rebuild can tell that its read went stale
+	private long generation;
+
+	public CatalogFacets(@Value("${catalog.facets.price-buckets:0,50,100,250,500,1000}") double[] edges) {
+		this.edges = edges.clone();
+		Arrays.sort(this.edges);
+		this.histogram = new int[this.edges.length];
+	}
+
+	/*
+	 * The catalog is read outside the monitor, so facet requests and changes are not held up. A
+	 * change applied meanwhile may be missing from what was read, and resetting the counts from it
+	 * would undo that change; the catalog is then read again.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		while (true) {
+			long startedAt;
+			synchronized (this) {
+				startedAt = generation;
+			}
+			List<ProductDTO> all = productService.viewallProductDTOs();
+			synchronized (this) {
+				if (generation != startedAt) {
+					logger.debug("Catalog changed while the facets were built; rebuilding");
+					continue;
+				}
+				products.clear();
+				categories.clear();
+				Arrays.fill(histogram, 0);
+				for (ProductDTO p : all) {
+					add(p);
+				}
+				logger.info("Catalog facets built: {} products in {} categories", all.size(), categories.size());
+			}
+			return;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onCatalogChanged(ProductCatalogEvent event) {
+		generation++;
+		for (Integer id : event.getRemovedIds()) {
+			remove(id);
+		}
+		for (ProductDTO product : event.getUpserted()) {
+			remove(product.getId());
+			add(product);
+		}
+	}
+
+	public synchronized FacetsDTO facets() {
+		List<CategoryFacetDTO> result = new ArrayList<>(categories.size());
+		for (Category c : categories.values()) {
+			if (c.facet == null) {
+				c.facet = summarize(c);
+			}
+			result.add(c.facet);
+		}
+		return new FacetsDTO(products.size(), edges.clone(), histogram.clone(), result);
+	}
+
+	// Caller holds the lock
+	private void add(ProductDTO p) {
+		String key = categoryKey(p.getCategory());
+		Category c = categories.get(key);
+		if (c == null) {
+			c = new Category(CategoryNames.clean(p.getCategory()));
+			categories.put(key, c);
+		}
+		products.put(p.getId(), new Priced(key, p.getCost()));
+		c.prices.merge(p.getCost(), 1, Integer::sum);
+		c.count++;
+		int bucket = bucket(p.getCost());
+		if (bucket >= 0) {
+			c.histogram[bucket]++;
+			histogram[bucket]++;
+		}
+		c.facet = null;
+	}
+
+	// Caller holds the lock
+	private void remove(int id) {
+		Priced p = products.remove(id);
+		if (p == null) {
+			return;
+		}
+		Category c = categories.get(p.category);
+		if (--c.count == 0) {
+			categories.remove(p.category);
+		} else {
+			c.prices.computeIfPresent(p.cost, (k, n) -> n == 1 ? null : n - 1);
+			c.facet = null;
+		}
+		int bucket = bucket(p.cost);
+		if (bucket >= 0) {
+			c.histogram[bucket]--;
+			histogram[bucket]--;
+		}
+	}
+
+	private CategoryFacetDTO summarize(Category c) {
+		return new CategoryFacetDTO(c.label, c.count, c.prices.firstKey(), c.prices.lastKey(), median(c),
+				c.histogram.clone());
+	}
+
+	private static double median(Category c) {
+		// Walks distinct prices, which is bounded by the category size and only runs after a change
+		int lower = (c.count - 1) / 2;
+		int upper = c.count / 2;
+		double lowValue = 0;
+		int seen = 0;
+		for (Map.Entry<Double, Integer> e : c.prices.entrySet()) {
+			int next = seen + e.getValue();
+			if (lower >= seen && lower < next) {
+				lowValue = e.getKey();
+			}
+			if (upper < next) {
+				return (lowValue + e.getKey()) / 2;
+			}
+			seen = next;
+		}
+		return lowValue;
+	}
+
+	// Index of the bucket holding cost, or -1 below the first edge
+	private int bucket(double cost) {
+		int i = Arrays.binarySearch(edges, cost);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	// Same key as category_table, so categories differing only in case or spacing are one category
+	private static String categoryKey(String category) {
+		return CategoryNames.key(category);
+	}
+}
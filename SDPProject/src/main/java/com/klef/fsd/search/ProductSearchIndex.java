@@ -0,0 +1,305 @@
+package com.klef.fsd.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.service.ProductService;
+
+/**
+ * In-memory inverted index over product name, category and description, ranked with BM25.
+ *
+ * The three fields are folded into one weighted term frequency per product (name counts three
+ * times, category twice), which is the BM25F simplification. Every query token also matches
+ * indexed terms it is a prefix of, so "tom" finds "tomato", at half the weight of an exact match.
+ */
+@Component
+public class ProductSearchIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+	private static final float NAME_WEIGHT = 3f;
+	private static final float CATEGORY_WEIGHT = 2f;
+	private static final float DESCRIPTION_WEIGHT = 1f;
+	private static final float PREFIX_WEIGHT = 0.5f;
+	private static final int MAX_PREFIX_EXPANSIONS = 50;
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	@Autowired
+	private ProductService productService;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// term -> (product id -> weighted term frequency); sorted so prefixes are a sub-map
+	private TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+	private Map<Integer, Document> documents = new HashMap<>();
+	private double totalLength;
+	// Bumped under the write lock by every change, so a rebuild can tell that its read went stale
+	private long generation;
+
+	// Ring buffer of recent query latencies (nanoseconds) for the stats endpoint
+	private final AtomicLongArray latencies = new AtomicLongArray(4096);
+	private final AtomicInteger queryCount = new AtomicInteger();
+
+	private static final class Document {
+		final ProductDTO product;
+		final Map<String, Float> terms;
+		final float length;
+
+		Document(ProductDTO product) {
+			this.product = product;
+			this.terms = new HashMap<>();
+			addField(terms, product.getName(), NAME_WEIGHT);
+			addField(terms, product.getCategory(), CATEGORY_WEIGHT);
+			addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+			float len = 0;
+			for (float tf : terms.values()) {
+				len += tf;
+			}
+			this.length = len;
+		}
+	}
+
+	public static final class Hit {
+		private final ProductDTO product;
+		private final double score;
+
+		Hit(ProductDTO product, double score) {
+			this.product = product;
+			this.score = score;
+		}
+
+		public ProductDTO getProduct() {
+			return product;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	/*
+	 * The catalog is read and tokenized without the lock, so searches and changes are not held up.
+	 * A change applied meanwhile may be missing from what was read, and swapping that in would undo
+	 * it; the build is then thrown away and the catalog read again.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		while (true) {
+			long startedAt;
+			lock.readLock().lock();
+			try {
+				startedAt = generation;
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			List<ProductDTO> products = productService.viewallProductDTOs();
+			// Tokenizing is the expensive part and is independent per product
+			List<Document> docs = products.parallelStream().map(Document::new).toList();
+
+			TreeMap<String, Map<Integer, Float>> newPostings = new TreeMap<>();
+			Map<Integer, Document> newDocuments = new HashMap<>(docs.size() * 2);
+			double newTotal = 0;
+			for (Document doc : docs) {
+				int id = doc.product.getId();
+				newDocuments.put(id, doc);
+				newTotal += doc.length;
+				for (Map.Entry<String, Float> t : doc.terms.entrySet()) {
+					newPostings.computeIfAbsent(t.getKey(), k -> new HashMap<>()).put(id, t.getValue());
+				}
+			}
+
+			lock.writeLock().lock();
+			try {
+				if (generation != startedAt) {
+					logger.debug("Catalog changed while the search index was built; rebuilding");
+					continue;
+				}
+				postings = newPostings;
+				documents = newDocuments;
+				totalLength = newTotal;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			logger.info("Search index built: {} products, {} terms", newDocuments.size(), newPostings.size());
+			return;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(ProductCatalogEvent event) {
+		lock.writeLock().lock();
+		try {
+			generation++;
+			for (Integer id : event.getRemovedIds()) {
+				remove(id);
+			}
+			for (ProductDTO product : event.getUpserted()) {
+				remove(product.getId());
+				add(new Document(product));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public List<Hit> search(String query, int limit) {
+		long start = System.nanoTime();
+		List<String> tokens = tokenize(query);
+		List<Hit> hits;
+		lock.readLock().lock();
+		try {
+			hits = rank(tokens, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+		int n = queryCount.getAndIncrement();
+		latencies.set(n % latencies.length(), System.nanoTime() - start);
+		return hits;
+	}
+
+	public Map<String, Object> stats() {
+		int count = Math.min(queryCount.get(), latencies.length());
+		long[] sample = new long[count];
+		for (int i = 0; i < count; i++) {
+			sample[i] = latencies.get(i);
+		}
+		Arrays.sort(sample);
+
+		Map<String, Object> stats = new LinkedHashMap<>();
+		lock.readLock().lock();
+		try {
+			stats.put("documents", documents.size());
+			stats.put("terms", postings.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+		stats.put("queries", queryCount.get());
+		stats.put("p50Micros", percentileMicros(sample, 0.50));
+		stats.put("p99Micros", percentileMicros(sample, 0.99));
+		return stats;
+	}
+
+	// Caller holds the read lock
+	private List<Hit> rank(List<String> tokens, int limit) {
+		int n = documents.size();
+		if (tokens.isEmpty() || n == 0) {
+			return List.of();
+		}
+		double avgLength = totalLength / n;
+		Map<Integer, Double> scores = new HashMap<>();
+
+		for (String token : tokens) {
+			// Exact term plus every longer term sharing the prefix
+			NavigableMap<String, Map<Integer, Float>> matches = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+			int expanded = 0;
+			for (Map.Entry<String, Map<Integer, Float>> term : matches.entrySet()) {
+				boolean exact = term.getKey().equals(token);
+				// The exact term sorts first, so everything past the limit is another expansion
+				if (!exact && ++expanded > MAX_PREFIX_EXPANSIONS) {
+					break;
+				}
+				Map<Integer, Float> docs = term.getValue();
+				double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+				double weight = exact ? 1.0 : PREFIX_WEIGHT;
+				for (Map.Entry<Integer, Float> posting : docs.entrySet()) {
+					float tf = posting.getValue();
+					float length = documents.get(posting.getKey()).length;
+					double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / avgLength));
+					scores.merge(posting.getKey(), weight * score, Double::sum);
+				}
+			}
+		}
+
+		List<Hit> hits = new ArrayList<>(scores.size());
+		for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+			hits.add(new Hit(documents.get(e.getKey()).product, e.getValue()));
+		}
+		hits.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score)
+				: Integer.compare(a.product.getId(), b.product.getId()));
+		return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+	}
+
+	// Caller holds the write lock
+	private void add(Document doc) {
+		int id = doc.product.getId();
+		documents.put(id, doc);
+		totalLength += doc.length;
+		for (Map.Entry<String, Float> t : doc.terms.entrySet()) {
+			postings.computeIfAbsent(t.getKey(), k -> new HashMap<>()).put(id, t.getValue());
+		}
+	}
+
+	// Caller holds the write lock
+	private void remove(int id) {
+		Document doc = documents.remove(id);
+		if (doc == null) {
+			return;
+		}
+		totalLength -= doc.length;
+		for (String term : doc.terms.keySet()) {
+			Map<Integer, Float> docs = postings.get(term);
+			if (docs != null) {
+				docs.remove(id);
+				if (docs.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+	}
+
+	private static void addField(Map<String, Float> terms, String text, float weight) {
+		for (String token : tokenize(text)) {
+			terms.merge(token, weight, Float::sum);
+		}
+	}
+
+	// Lower-cases and splits on anything that is not a letter or digit
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (word && start < 0) {
+				start = i;
+			} else if (!word && start >= 0) {
+				tokens.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	private static long percentileMicros(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int idx = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, idx)] / 1000;
+	}
+}
@@ -0,0 +1,129 @@
+package com.klef.fsd.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.dto.SuggestionDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.repository.OrderRepository;
+import com.klef.fsd.service.ProductService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Typeahead suggestions over product names and categories, ranked by units sold.
+ *
+ * Lookups read an immutable SuggestionTrie through a volatile field and never wait. Catalog
+ * changes schedule a rebuild on a background thread, debounced so a burst of edits costs one
+ * rebuild, and the finished trie replaces the old one in a single write. Sales only move the
+ * ranking slowly, so they are picked up by a periodic refresh rather than on every order.
+ */
+@Component
+public class ProductSuggester {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Value("${catalog.suggest.max-results:10}")
+	private int maxResults;
+
+	@Value("${catalog.suggest.rebuild-delay:2s}")
+	private Duration rebuildDelay;
+
+	@Value("${catalog.suggest.refresh:15m}")
+	private Duration refresh;
+
+	private volatile SuggestionTrie trie = SuggestionTrie.empty();
+	private final AtomicBoolean rebuildPending = new AtomicBoolean();
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "catalog-suggest");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		executor.execute(this::rebuild);
+		executor.scheduleWithFixedDelay(this::rebuild, refresh.toMillis(), refresh.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(ProductCatalogEvent event) {
+		if (rebuildPending.compareAndSet(false, true)) {
+			executor.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public List<SuggestionDTO> suggest(String prefix, int limit) {
+		List<SuggestionDTO> suggestions = new ArrayList<>();
+		for (SuggestionTrie.Entry e : trie.lookup(prefix, limit)) {
+			suggestions.add(new SuggestionDTO(e.getText(), e.getType(), e.getProductId()));
+		}
+		return suggestions;
+	}
+
+	public int getMaxResults() {
+		return maxResults;
+	}
+
+	void rebuild() {
+		// Cleared first so a change arriving mid-build schedules another pass
+		rebuildPending.set(false);
+		try {
+			Map<Integer, Long> sold = new HashMap<>();
+			for (Object[] row : orderRepository.getQuantitySoldPerProduct()) {
+				sold.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+			}
+
+			List<SuggestionTrie.Entry> entries = new ArrayList<>();
+			Map<String, Long> categorySold = new HashMap<>();
+			Map<String, String> categoryLabel = new HashMap<>();
+			for (ProductDTO p : productService.viewallProductDTOs()) {
+				long units = sold.getOrDefault(p.getId(), 0L);
+				entries.add(new SuggestionTrie.Entry(p.getName(), "product", p.getId(), units));
+				String key = SuggestionTrie.normalize(p.getCategory());
+				if (!key.isEmpty()) {
+					categorySold.merge(key, units, Long::sum);
+					categoryLabel.putIfAbsent(key, p.getCategory().trim());
+				}
+			}
+			for (Map.Entry<String, Long> c : categorySold.entrySet()) {
+				entries.add(new SuggestionTrie.Entry(categoryLabel.get(c.getKey()), "category", 0, c.getValue()));
+			}
+
+			SuggestionTrie built = SuggestionTrie.build(entries, maxResults);
+			trie = built;
+			logger.info("Suggestion trie built: {} keys, {} nodes", built.size(), built.nodeCount());
+		} catch (RuntimeException e) {
+			// Keep serving the previous trie; the next change or refresh tries again
+			logger.warn("Suggestion trie rebuild failed", e);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,218 @@
+package com.klef.fsd.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable radix trie over suggestion keys with the top-k completions precomputed per node.
+ *
+ * Keys are kept in one sorted array, so every trie node is a contiguous range of it and is stored
+ * as nothing more than that range plus its top-k list. A radix trie has fewer than two nodes per
+ * key, which bounds memory at roughly 2 * k ints per key. A lookup is two binary searches to find
+ * the prefix's range and one hash lookup for the node that owns it.
+ */
+public final class SuggestionTrie {
+
+	public static final class Entry {
+		private final String text;
+		private final String type;
+		private final int productId;
+		private final long score;
+
+		public Entry(String text, String type, int productId, long score) {
+			this.text = text;
+			this.type = type;
+			this.productId = productId;
+			this.score = score;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public int getProductId() {
+			return productId;
+		}
+
+		public long getScore() {
+			return score;
+		}
+	}
+
+	private static final SuggestionTrie EMPTY = new SuggestionTrie(new String[0], new Entry[0], new HashMap<>(), 0);
+
+	private final String[] keys;
+	private final Entry[] entries;
+	// (lo << 32 | hi) of a node's key range -> entry indexes, best first
+	private final Map<Long, int[]> topK;
+	private final int k;
+
+	private SuggestionTrie(String[] keys, Entry[] entries, Map<Long, int[]> topK, int k) {
+		this.keys = keys;
+		this.entries = entries;
+		this.topK = topK;
+		this.k = k;
+	}
+
+	public static SuggestionTrie empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Builds the trie. Of entries whose normalized text collides only the highest scored is kept;
+	 * equal scores are ranked alphabetically so the same data always yields the same order.
+	 */
+	public static SuggestionTrie build(List<Entry> input, int k) {
+		Map<String, Entry> unique = new HashMap<>(input.size() * 2);
+		for (Entry e : input) {
+			String key = normalize(e.text);
+			if (!key.isEmpty()) {
+				unique.merge(key, e, (a, b) -> b.score > a.score ? b : a);
+			}
+		}
+		String[] keys = unique.keySet().toArray(new String[0]);
+		Arrays.sort(keys);
+		Entry[] entries = new Entry[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			entries[i] = unique.get(keys[i]);
+		}
+		if (keys.length == 0) {
+			return EMPTY;
+		}
+		Map<Long, int[]> topK = new HashMap<>(keys.length * 4);
+		SuggestionTrie trie = new SuggestionTrie(keys, entries, topK, k);
+		trie.buildNode(0, keys.length, 0);
+		return trie;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public int nodeCount() {
+		return topK.size();
+	}
+
+	public List<Entry> lookup(String prefix, int limit) {
+		String p = normalize(prefix);
+		if (p.isEmpty() || keys.length == 0) {
+			return List.of();
+		}
+		int lo = lowerBound(p);
+		int hi = lowerBound(p + Character.MAX_VALUE);
+		if (lo >= hi) {
+			return List.of();
+		}
+		// Every prefix with at least one match ends on (or inside the edge above) exactly one node
+		int[] best = topK.get(range(lo, hi));
+		int n = Math.min(Math.min(limit, k), best.length);
+		List<Entry> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			result.add(entries[best[i]]);
+		}
+		return result;
+	}
+
+	// Registers the node covering keys[lo, hi), whose keys share their first `depth` chars
+	private int[] buildNode(int lo, int hi, int depth) {
+		// The range is sorted, so its longest common prefix is that of its first and last key
+		int lcp = commonPrefix(keys[lo], keys[hi - 1], depth);
+		List<int[]> candidates = new ArrayList<>();
+		int i = lo;
+		// A key equal to the node's label sorts first in its range
+		if (keys[i].length() == lcp) {
+			candidates.add(new int[] { i });
+			i++;
+		}
+		while (i < hi) {
+			char c = keys[i].charAt(lcp);
+			int j = i + 1;
+			while (j < hi && keys[j].charAt(lcp) == c) {
+				j++;
+			}
+			candidates.add(i + 1 == j ? leaf(i) : buildNode(i, j, lcp + 1));
+			i = j;
+		}
+		int[] best = merge(candidates);
+		topK.put(range(lo, hi), best);
+		return best;
+	}
+
+	private int[] leaf(int i) {
+		int[] best = { i };
+		topK.put(range(i, i + 1), best);
+		return best;
+	}
+
+	// k-way merge of the children's lists, each already ordered best first
+	private int[] merge(List<int[]> lists) {
+		if (lists.size() == 1) {
+			return lists.get(0);
+		}
+		int total = 0;
+		for (int[] list : lists) {
+			total += list.length;
+		}
+		int[] best = new int[Math.min(k, total)];
+		int[] heads = new int[lists.size()];
+		for (int n = 0; n < best.length; n++) {
+			int pick = -1;
+			for (int c = 0; c < heads.length; c++) {
+				int[] list = lists.get(c);
+				if (heads[c] < list.length && (pick < 0 || better(list[heads[c]], lists.get(pick)[heads[pick]]))) {
+					pick = c;
+				}
+			}
+			best[n] = lists.get(pick)[heads[pick]++];
+		}
+		return best;
+	}
+
+	// Higher score first, then alphabetical (keys are sorted, so lower index is alphabetical)
+	private boolean better(int a, int b) {
+		return entries[a].score != entries[b].score ? entries[a].score > entries[b].score : a < b;
+	}
+
+	private int lowerBound(String key) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static int commonPrefix(String a, String b, int from) {
+		int max = Math.min(a.length(), b.length());
+		int i = from;
+		while (i < max && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static long range(int lo, int hi) {
+		return ((long) lo << 32) | hi;
+	}
+
+	// Case-insensitive, with runs of whitespace collapsed so "cherry  tomato" matches "cherry t"
+	public static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+}
@@ -114,7 +114,7 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public long getTotalProducts() {
-        return productRepository.count();
+        return productRepository.countByDeletedFalse();
     }
 
     @Override
@@ -0,0 +1,9 @@
+package com.klef.fsd.service;
+
+import com.klef.fsd.dto.BuyerHomeDTO;
+
+public interface BuyerHomeService {
+
+	public BuyerHomeDTO getHomeFeed(int buyerId);
+
+}
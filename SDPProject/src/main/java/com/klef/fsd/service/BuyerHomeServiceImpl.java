@@ -0,0 +1,128 @@
+package com.klef.fsd.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.cache.CatalogCache;
+import com.klef.fsd.cache.ExpiringValue;
+import com.klef.fsd.dto.BuyerHomeDTO;
+import com.klef.fsd.dto.CategoryFacetDTO;
+import com.klef.fsd.dto.CategorySampleDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.repository.OrderRepository;
+import com.klef.fsd.repository.ProductRepository;
+import com.klef.fsd.search.CatalogFacets;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * The buyer landing page in one response.
+ *
+ * The catalog sections are shared by every buyer, so each is kept as an ExpiringValue with its own
+ * TTL: newest products and category samples are also dropped on every catalog change, while top
+ * sellers only follow sales and are simply refreshed every few minutes. Only the cart count is
+ * per buyer, and it comes from the cart service rather than the table.
+ */
+@Service
+public class BuyerHomeServiceImpl implements BuyerHomeService {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CatalogCache catalogCache;
+
+	@Autowired
+	private CatalogFacets catalogFacets;
+
+	@Value("${buyer.home.section-size:8}")
+	private int sectionSize;
+
+	@Value("${buyer.home.newest-ttl:1m}")
+	private Duration newestTtl;
+
+	@Value("${buyer.home.top-sellers-ttl:10m}")
+	private Duration topSellersTtl;
+
+	@Value("${buyer.home.categories-ttl:5m}")
+	private Duration categoriesTtl;
+
+	private ExpiringValue<List<ProductDTO>> newest;
+	private ExpiringValue<List<ProductDTO>> topSellers;
+	private ExpiringValue<List<CategorySampleDTO>> categories;
+
+	@PostConstruct
+	public void init() {
+		newest = new ExpiringValue<>(newestTtl, this::loadNewest);
+		topSellers = new ExpiringValue<>(topSellersTtl, this::loadTopSellers);
+		categories = new ExpiringValue<>(categoriesTtl, this::loadCategories);
+	}
+
+	@Override
+	public BuyerHomeDTO getHomeFeed(int buyerId) {
+		return new BuyerHomeDTO(newest.get(), topSellers.get(), categories.get(), cartCount(buyerId));
+	}
+
+	// The cart service answers from its summary cache or live cart; an unknown buyer just has no cart
+	private int cartCount(int buyerId) {
+		try {
+			return cartService.getCartCountByBuyerId(buyerId);
+		} catch (IllegalArgumentException e) {
+			return 0;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(ProductCatalogEvent event) {
+		newest.invalidate();
+		categories.invalidate();
+	}
+
+	// Highest ids first, read backwards off the primary key
+	private List<ProductDTO> loadNewest() {
+		return List.copyOf(productRepository.findNewestProductDTOs(PageRequest.of(0, sectionSize)));
+	}
+
+	private List<ProductDTO> loadTopSellers() {
+		// A few spare ids in case some of the best sellers have been deleted since
+		List<Integer> ids = orderRepository.findTopSellingProductIds(PageRequest.of(0, sectionSize * 2));
+		List<ProductDTO> result = new ArrayList<>(sectionSize);
+		for (ProductBatchItemDTO item : productService.getProductDTOsByIds(ids)) {
+			if (item.isFound() && result.size() < sectionSize) {
+				result.add(item.getProduct());
+			}
+		}
+		return List.copyOf(result);
+	}
+
+	// Category names and counts come from the in-memory facets, so no query groups the product table
+	private List<CategorySampleDTO> loadCategories() {
+		List<CategorySampleDTO> result = new ArrayList<>();
+		for (CategoryFacetDTO facet : catalogFacets.facets().getCategories()) {
+			List<ProductDTO> sample = catalogCache.isReady()
+					? catalogCache.getByCategory(facet.getCategory())
+					: productService.viewCatalogPage(0, sectionSize, facet.getCategory(), null, null).getProducts();
+			result.add(new CategorySampleDTO(facet.getCategory(), facet.getCount(),
+					List.copyOf(sample.subList(0, Math.min(sectionSize, sample.size())))));
+		}
+		return List.copyOf(result);
+	}
+}
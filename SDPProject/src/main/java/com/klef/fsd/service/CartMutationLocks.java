@@ -0,0 +1,77 @@
+package com.klef.fsd.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Serializes the cart mutations of one buyer without serializing buyers against each other.
+ *
+ * Buyers are hashed onto a fixed array of locks, so memory stays constant however many buyers there
+ * are; two buyers sharing a stripe only wait on each other briefly. The lock is taken before the
+ * transaction starts and released after it commits, so the next mutation for the buyer sees the
+ * previous one's rows (the 10-item count included) instead of racing it. A caller that already runs
+ * in a transaction joins it, and then only its statements, not its commit, are serialized.
+ *
+ * The locks are per instance; the unique (buyer_id, product_id) key still backs the cart across
+ * instances.
+ */
+@Component
+public class CartMutationLocks {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReentrantLock[] stripes;
+    private TransactionTemplate transaction;
+
+    public CartMutationLocks(@Value("${cart.lock.stripes:64}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("cart.lock.stripes must be positive");
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T call(int buyerId, Supplier<T> mutation) {
+        return locked(buyerId, () -> transaction.execute(status -> mutation.get()));
+    }
+
+    // The buyer's lock alone, for work on in-memory cart state; the locks are reentrant
+    public <T> T locked(int buyerId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(buyerId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void run(int buyerId, Runnable mutation) {
+        call(buyerId, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    // Sequential ids would otherwise land on neighbouring stripes in lockstep
+    private int stripe(int buyerId) {
+        int h = buyerId * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), stripes.length);
+    }
+}
@@ -3,11 +3,13 @@ package com.klef.fsd.service;
 import java.util.List;
 
 import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
 import com.klef.fsd.model.Cart;
 
 public interface CartService {
 
-    Cart addToCart(Cart cart);
+    CartDTO addToCart(Cart cart);
 
     List<CartDTO> getCartItemsByBuyerId(int buyerId);
 
@@ -18,5 +20,9 @@ public interface CartService {
     Cart updateCartQuantity(int buyerId, int productId, int quantity);
 
     int getCartCountByBuyerId(int buyerId);
+
+    CartSummaryDTO getCartSummary(int buyerId);
+
+    List<CartDTO> applyBatch(int buyerId, List<CartOperationDTO> operations);
     
 }
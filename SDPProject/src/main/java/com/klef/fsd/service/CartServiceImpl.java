@@ -1,13 +1,27 @@
 package com.klef.fsd.service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.klef.fsd.cache.CartSummaryCache;
 import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
 import com.klef.fsd.dto.ProductDTO;
 import com.klef.fsd.model.Buyer;
 import com.klef.fsd.model.Cart;
@@ -18,8 +32,12 @@ import com.klef.fsd.repository.ProductRepository;
 
 @Service
 @Transactional
+@ConditionalOnProperty(name = "cart.storage.mode", havingValue = "database", matchIfMissing = true)
 public class CartServiceImpl implements CartService {
 
+    static final int MAX_ITEMS = 10;
+    static final int MAX_QUANTITY = 10;
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -29,100 +47,104 @@ public class CartServiceImpl implements CartService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CartMutationLocks cartLocks;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CartSummaryCache summaryCache;
+
+    // Mutations take the buyer's lock first and run their own transaction inside it
     @Override
-    public Cart addToCart(Cart cart) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartDTO addToCart(Cart cart) {
         if (cart == null || cart.getProduct() == null || cart.getBuyer() == null) {
             throw new IllegalArgumentException("Cart, product, or buyer cannot be null");
         }
-
-        Optional<Product> productOpt = productRepository.findById(cart.getProduct().getId());
-        if (!productOpt.isPresent()) {
-            throw new IllegalArgumentException("Product does not exist");
+        if (cart.getQuantity() < 1 || cart.getQuantity() > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_QUANTITY);
         }
 
-        Product product = productOpt.get();
-        
-        // Validate product has a farmer
-        if (product.getFarmer() == null) {
-            throw new IllegalArgumentException("Cannot add product to cart: Product has no associated farmer");
-        }
+        int buyerId = cart.getBuyer().getId();
+        int productId = cart.getProduct().getId();
+        int quantity = cart.getQuantity();
+        return cartLocks.call(buyerId, () -> upsert(buyerId, productId, quantity));
+    }
 
-        Optional<Buyer> buyerOpt = buyerRepository.findById(cart.getBuyer().getId());
-        if (!buyerOpt.isPresent()) {
+    private CartDTO upsert(int buyerId, int productId, int quantity) {
+        summaryCache.invalidate(buyerId);
+        int written;
+        try {
+            written = cartRepository.upsertQuantity(buyerId, productId, quantity, MAX_ITEMS, MAX_QUANTITY);
+        } catch (DataIntegrityViolationException e) {
+            // The product side is filtered by the upsert itself, so only the buyer key can fail
             throw new IllegalArgumentException("Buyer does not exist");
         }
 
-        // Check if the product is already in the cart for this buyer
-        Cart existingCart = cartRepository.findByBuyerIdAndProductId(cart.getBuyer().getId(), cart.getProduct().getId());
-        if (existingCart != null) {
-            throw new IllegalArgumentException("Product already in cart");
-        }
-
-        // Check cart limit (e.g., max 10 products)
-        List<Cart> buyerCartItems = cartRepository.findByBuyer(buyerOpt.get());
-        if (buyerCartItems.size() >= 10) {
+        if (written == 0) {
+            // Rejected adds only: work out which condition filtered the row
+            Optional<Product> productOpt = productRepository.findByIdAndDeletedFalse(productId);
+            if (!productOpt.isPresent()) {
+                throw new IllegalArgumentException("Product does not exist");
+            }
+            if (productOpt.get().getFarmer() == null) {
+                throw new IllegalArgumentException("Cannot add product to cart: Product has no associated farmer");
+            }
             throw new IllegalArgumentException("Cart limit exceeded");
         }
-
-        cart.setBuyer(buyerOpt.get());
-        cart.setProduct(product);
-        return cartRepository.save(cart);
+        return cartRepository.findCartDTOByBuyerIdAndProductId(buyerId, productId);
     }
 
     @Override
     public List<CartDTO> getCartItemsByBuyerId(int buyerId) {
-        Optional<Buyer> buyerOpt = buyerRepository.findById(buyerId);
-        if (!buyerOpt.isPresent()) {
+        List<CartDTO> cartDTOs = cartRepository.findCartDTOsByBuyerId(buyerId);
+        // Only an empty cart needs telling apart from an unknown buyer
+        if (cartDTOs.isEmpty() && !buyerRepository.existsById(buyerId)) {
             return null;
         }
-
-        List<Cart> cartItems = cartRepository.findByBuyer(buyerOpt.get());
-        List<CartDTO> cartDTOs = new ArrayList<>();
-
-        for (Cart cart : cartItems) {
-            CartDTO cartDTO = new CartDTO();
-            cartDTO.setId(cart.getCid());
-            cartDTO.setQuantity(cart.getQuantity());
-
-            ProductDTO pdto = new ProductDTO();
-            pdto.setId(cart.getProduct().getId());
-            pdto.setName(cart.getProduct().getName());
-            pdto.setCategory(cart.getProduct().getCategory());
-            pdto.setDescription(cart.getProduct().getDescription());
-            pdto.setCost(cart.getProduct().getCost());
-            pdto.setFarmer_id(cart.getProduct().getFarmer() != null ? cart.getProduct().getFarmer().getId() : 0);
-
-            cartDTO.setProduct(pdto);
-            cartDTOs.add(cartDTO);
-        }
-
         return cartDTOs;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeCartItem(int cartId) {
-        Optional<Cart> cartOpt = cartRepository.findById(cartId);
-        if (!cartOpt.isPresent()) {
+        Integer buyerId = cartRepository.findBuyerIdByCartId(cartId);
+        if (buyerId == null) {
             throw new IllegalArgumentException("Cart item does not exist");
         }
-        cartRepository.deleteById(cartId);
+        cartLocks.run(buyerId, () -> {
+            // Gone already if a concurrent request removed it or cleared the cart
+            if (cartRepository.deleteByCartId(cartId) == 0) {
+                throw new IllegalArgumentException("Cart item does not exist");
+            }
+            summaryCache.invalidate(buyerId);
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void clearCartByBuyerId(int buyerId) {
-        Optional<Buyer> buyerOpt = buyerRepository.findById(buyerId);
-        if (!buyerOpt.isPresent()) {
-            throw new IllegalArgumentException("Buyer does not exist");
-        }
-        cartRepository.deleteByBuyerId(buyerId);
+        cartLocks.run(buyerId, () -> {
+            if (!buyerRepository.existsById(buyerId)) {
+                throw new IllegalArgumentException("Buyer does not exist");
+            }
+            cartRepository.deleteByBuyerId(buyerId);
+            summaryCache.invalidate(buyerId);
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Cart updateCartQuantity(int buyerId, int productId, int quantity) {
-        if (quantity < 1 || quantity > 10) {
-            throw new IllegalArgumentException("Quantity must be between 1 and 10");
+        if (quantity < 1 || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_QUANTITY);
         }
+        return cartLocks.call(buyerId, () -> setQuantity(buyerId, productId, quantity));
+    }
 
+    private Cart setQuantity(int buyerId, int productId, int quantity) {
         Optional<Buyer> buyerOpt = buyerRepository.findById(buyerId);
         if (!buyerOpt.isPresent()) {
             throw new IllegalArgumentException("Buyer does not exist");
@@ -139,15 +161,135 @@ public class CartServiceImpl implements CartService {
         }
 
         cart.setQuantity(quantity);
+        summaryCache.invalidate(buyerId);
         return cartRepository.save(cart);
     }
 
     @Override
     public int getCartCountByBuyerId(int buyerId) {
-        Optional<Buyer> buyerOpt = buyerRepository.findById(buyerId);
-        if (!buyerOpt.isPresent()) {
+        return getCartSummary(buyerId).getItemCount();
+    }
+
+    /*
+     * Served from the summary cache; a miss is one aggregate query, run under the buyer's lock so it
+     * cannot interleave with a mutation of the same cart, and only an empty result needs the buyer
+     * checked. Mutations drop the entry inside their locked section.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartSummaryDTO getCartSummary(int buyerId) {
+        CartSummaryDTO cached = summaryCache.get(buyerId);
+        if (cached != null) {
+            return cached;
+        }
+        return cartLocks.locked(buyerId, () -> {
+            long generation = summaryCache.generation();
+            CartSummaryDTO summary = cartRepository.summarizeByBuyerId(buyerId);
+            if (summary.getItemCount() == 0 && !buyerRepository.existsById(buyerId)) {
+                throw new IllegalArgumentException("Buyer does not exist");
+            }
+            summaryCache.put(buyerId, summary, generation);
+            return summary;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CartDTO> applyBatch(int buyerId, List<CartOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (CartOperationDTO op : operations) {
+            String type = op.getType() == null ? "" : op.getType().toLowerCase(Locale.ROOT);
+            if (type.equals("add") || type.equals("update")) {
+                if (op.getQuantity() < 1 || op.getQuantity() > MAX_QUANTITY) {
+                    throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_QUANTITY);
+                }
+            } else if (!type.equals("remove")) {
+                throw new IllegalArgumentException("Unknown cart operation: " + op.getType());
+            }
+            productIds.add(op.getProductId());
+        }
+        return cartLocks.call(buyerId, () -> applyOperations(buyerId, operations, productIds));
+    }
+
+    /*
+     * Replays the operations against the cart in memory and writes only the difference, so the cost
+     * is a fixed handful of statements whatever the batch size: buyer, products, current cart, one
+     * JDBC batch each for deletes, updates and inserts, and the resulting cart. Removing and re-adding
+     * a product in one batch updates its row instead of colliding with it on the unique key.
+     */
+    private List<CartDTO> applyOperations(int buyerId, List<CartOperationDTO> operations, Set<Integer> productIds) {
+        if (!buyerRepository.existsById(buyerId)) {
             throw new IllegalArgumentException("Buyer does not exist");
         }
-        return cartRepository.countByBuyerId(buyerId);
+        Map<Integer, ProductDTO> products = new HashMap<>();
+        for (ProductDTO product : productRepository.findProductDTOsByIds(productIds)) {
+            products.put(product.getId(), product);
+        }
+        Map<Integer, CartDTO> current = new LinkedHashMap<>();
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CartDTO line : cartRepository.findCartDTOsByBuyerId(buyerId)) {
+            current.put(line.getProduct().getId(), line);
+            quantities.put(line.getProduct().getId(), line.getQuantity());
+        }
+
+        for (CartOperationDTO op : operations) {
+            int productId = op.getProductId();
+            String type = op.getType().toLowerCase(Locale.ROOT);
+            if (type.equals("add")) {
+                ProductDTO product = products.get(productId);
+                if (product == null) {
+                    throw new IllegalArgumentException("Product does not exist: " + productId);
+                }
+                if (product.getFarmer_id() == 0) {
+                    throw new IllegalArgumentException("Cannot add product to cart: Product has no associated farmer");
+                }
+                Integer quantity = quantities.get(productId);
+                if (quantity == null && quantities.size() >= MAX_ITEMS) {
+                    throw new IllegalArgumentException("Cart limit exceeded");
+                }
+                quantities.put(productId, Math.min((quantity == null ? 0 : quantity) + op.getQuantity(), MAX_QUANTITY));
+            } else if (type.equals("update")) {
+                if (!products.containsKey(productId)) {
+                    throw new IllegalArgumentException("Product does not exist: " + productId);
+                }
+                if (!quantities.containsKey(productId)) {
+                    throw new IllegalArgumentException("Cart item does not exist for product " + productId);
+                }
+                quantities.put(productId, op.getQuantity());
+            } else if (quantities.remove(productId) == null) {
+                throw new IllegalArgumentException("Cart item does not exist for product " + productId);
+            }
+        }
+
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (CartDTO line : current.values()) {
+            Integer quantity = quantities.get(line.getProduct().getId());
+            if (quantity == null) {
+                deletes.add(new Object[] { line.getId() });
+            } else if (quantity != line.getQuantity()) {
+                updates.add(new Object[] { quantity, line.getId() });
+            }
+        }
+        for (Map.Entry<Integer, Integer> e : quantities.entrySet()) {
+            if (!current.containsKey(e.getKey())) {
+                inserts.add(new Object[] { buyerId, e.getKey(), e.getValue() });
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_table WHERE cart_id = ?", deletes);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cart_table SET quantity = ? WHERE cart_id = ?", updates);
+        }
+        summaryCache.invalidate(buyerId);
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO cart_table (buyer_id, product_id, quantity) VALUES (?, ?, ?)", inserts);
+        }
+        return cartRepository.findCartDTOsByBuyerId(buyerId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.klef.fsd.service;
+
+public interface CatalogVersionService {
+
+	// Reserves count consecutive product change versions and returns the first one.
+	// Must be called inside the transaction that writes them (see the implementation).
+	public long reserve(int count);
+
+}
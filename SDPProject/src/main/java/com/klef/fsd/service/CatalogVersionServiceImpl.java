@@ -0,0 +1,45 @@
+package com.klef.fsd.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Hands out product change versions from a single counter row.
+ *
+ * The UPDATE locks the row until the calling transaction ends, so catalog writers are serialized
+ * on it and versions become visible in the order they were handed out. A client that has synced
+ * up to version v can therefore never later see a commit with a version at or below v.
+ */
+@Service
+public class CatalogVersionServiceImpl implements CatalogVersionService {
+
+	private static final String SEQUENCE = "product_change";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public long reserve(int count) {
+		while (true) {
+			int updated = jdbcTemplate.update("UPDATE catalog_sequence SET seq_value = seq_value + ? WHERE seq_name = ?",
+					count, SEQUENCE);
+			if (updated == 1) {
+				long last = jdbcTemplate.queryForObject("SELECT seq_value FROM catalog_sequence WHERE seq_name = ?",
+						Long.class, SEQUENCE);
+				return last - count + 1;
+			}
+			// First use: continue after whatever versions the table already holds
+			try {
+				jdbcTemplate.update("INSERT INTO catalog_sequence (seq_name, seq_value) "
+						+ "SELECT ?, COALESCE(MAX(product_change_version), 0) FROM product_table", SEQUENCE);
+			} catch (DuplicateKeyException e) {
+				// Another writer created it first
+			}
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.klef.fsd.service;
+
+import com.klef.fsd.model.Category;
+
+public interface CategoryService {
+
+	// Finds or creates the category for a free-text label
+	public Category resolve(String label);
+
+	// Id of an existing category, or null when no product has used the label yet
+	public Integer findId(String label);
+
+}
@@ -0,0 +1,94 @@
+package com.klef.fsd.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.model.Category;
+import com.klef.fsd.model.CategoryNames;
+import com.klef.fsd.repository.CategoryRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Maps free-text category labels to rows of category_table.
+ *
+ * Categories are few and never deleted, so every one that has been resolved stays in memory and
+ * resolving a known label costs no query. A new category is created in its own transaction: it is
+ * committed even if the product write that introduced it rolls back, which only leaves an unused
+ * dictionary row, and concurrent writers introducing the same label see each other's row at once
+ * instead of waiting on the unique key until the first writer's transaction ends.
+ */
+@Service
+public class CategoryServiceImpl implements CategoryService {
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate ownTransaction;
+	private final Map<String, Category> byKey = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		ownTransaction = new TransactionTemplate(transactionManager);
+		ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	public Category resolve(String label) {
+		String name = CategoryNames.clean(label);
+		if (name.isEmpty()) {
+			throw new IllegalArgumentException("Category is required");
+		}
+		String key = CategoryNames.key(name);
+		Category cached = byKey.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		Category category;
+		try {
+			category = ownTransaction.execute(status -> findOrCreate(name, key));
+		} catch (DataIntegrityViolationException e) {
+			// Another writer created it first; its row is committed, so a fresh transaction sees it
+			category = ownTransaction.execute(status -> findOrCreate(name, key));
+		}
+		byKey.put(key, category);
+		return category;
+	}
+
+	@Override
+	public Integer findId(String label) {
+		String key = CategoryNames.key(label);
+		Category category = byKey.get(key);
+		if (category == null) {
+			Optional<Category> stored = categoryRepository.findByNormalizedName(key);
+			if (stored.isEmpty()) {
+				return null;
+			}
+			category = stored.get();
+			byKey.put(key, category);
+		}
+		return category.getId();
+	}
+
+	private Category findOrCreate(String name, String key) {
+		Optional<Category> stored = categoryRepository.findByNormalizedName(key);
+		if (stored.isPresent()) {
+			return stored.get();
+		}
+		Category category = new Category();
+		category.setName(name);
+		category.setNormalizedName(key);
+		return categoryRepository.saveAndFlush(category);
+	}
+}
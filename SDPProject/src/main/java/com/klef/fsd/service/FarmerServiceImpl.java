@@ -172,7 +172,7 @@ public class FarmerServiceImpl implements FarmerService {
 		if (farmer == null) {
 			throw new IllegalArgumentException("Farmer not found");
 		}
-		return productRepository.findByFarmer(farmer).size();
+		return productRepository.findByFarmerAndDeletedFalse(farmer).size();
 	}
 
 	@Override
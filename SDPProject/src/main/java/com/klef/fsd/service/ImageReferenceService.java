@@ -0,0 +1,21 @@
+package com.klef.fsd.service;
+
+public interface ImageReferenceService {
+
+	// Records count more products showing the image. Must be called inside the transaction that
+	// writes those products; fails if the file was garbage-collected since it was stored.
+	public void acquire(StoredImage image, int count);
+
+	// Records one product no longer showing the image. Must be called inside the writing
+	// transaction; once it commits, an image nobody references any more is deleted.
+	public void release(String hash);
+
+	// Deletes a stored image that no product references, such as an upload whose product was never
+	// written. Must be called outside any transaction.
+	public void discard(StoredImage image);
+
+	// Discards the image once the current transaction ends without committing. Must be called inside
+	// the writing transaction, before anything in it can fail.
+	public void discardOnRollback(StoredImage image);
+
+}
@@ -0,0 +1,173 @@
+package com.klef.fsd.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.cache.ProductImageCache;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Reference counts for the content-addressed image store.
+ *
+ * Identical uploads already land in the same file; this keeps track of how many live products
+ * point at each file so the last one to let go can delete it, together with its variants and its
+ * cached bytes. Counts change inside the product transaction, so they commit or roll back with it.
+ *
+ * Collection runs after the releasing transaction commits, in its own transaction that locks the
+ * image's row and deletes the files before committing the row's removal. acquire() updates the
+ * same row first and checks the file afterwards, so an upload of the same content that races with
+ * collection either keeps the file alive or fails cleanly, and never leaves a product pointing at
+ * a deleted image.
+ *
+ * Uploads are stored before the product transaction starts, so a write that fails leaves a file
+ * nothing may refer to. Such files are discarded through the same collection, after first creating
+ * an empty row for them so that the row lock still orders the collection against an acquire.
+ */
+@Service
+public class ImageReferenceServiceImpl implements ImageReferenceService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageReferenceServiceImpl.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ImageStorageService imageStorageService;
+
+	@Autowired
+	private ImageVariantService imageVariantService;
+
+	@Autowired
+	private ProductImageCache productImageCache;
+
+	private TransactionTemplate ownTransaction;
+
+	@PostConstruct
+	public void init() {
+		ownTransaction = new TransactionTemplate(transactionManager);
+		ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void acquire(StoredImage image, int count) {
+		String hash = image.getHash();
+		// Waits for a collection in progress on this image to commit
+		while (jdbcTemplate.update("UPDATE image_reference SET image_ref_count = image_ref_count + ? WHERE image_hash = ?",
+				count, hash) == 0) {
+			try {
+				jdbcTemplate.update("INSERT INTO image_reference (image_hash, image_type, image_size, image_ref_count) "
+						+ "VALUES (?, ?, ?, ?)", hash, image.getContentType(), image.getSize(), count);
+				break;
+			} catch (DuplicateKeyException e) {
+				// Another writer created it first
+			}
+		}
+		// The row is now locked by this transaction, so the file can no longer be collected under it
+		if (!imageStorageService.exists(hash)) {
+			throw new IllegalStateException("Image was removed while it was being attached, please upload it again");
+		}
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void release(String hash) {
+		int updated = jdbcTemplate.update(
+				"UPDATE image_reference SET image_ref_count = image_ref_count - 1 WHERE image_hash = ? AND image_ref_count > 0",
+				hash);
+		if (updated == 0) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				collect(hash);
+			}
+		});
+	}
+
+	@Override
+	public void discard(StoredImage image) {
+		collect(image.getHash(), image);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void discardOnRollback(StoredImage image) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED) {
+					discard(image);
+				}
+			}
+		});
+	}
+
+	void collect(String hash) {
+		collect(hash, null);
+	}
+
+	// untracked is the stored image when it may never have been acquired, and so may have no row
+	private void collect(String hash, StoredImage untracked) {
+		try {
+			Boolean deleted = ownTransaction.execute(status -> {
+				if (untracked != null) {
+					try {
+						jdbcTemplate.update("INSERT INTO image_reference (image_hash, image_type, image_size, image_ref_count) "
+								+ "VALUES (?, ?, ?, 0)", hash, untracked.getContentType(), untracked.getSize());
+					} catch (DuplicateKeyException e) {
+						// Already counted; the row decides below
+					}
+				}
+				List<Integer> counts = jdbcTemplate.queryForList(
+						"SELECT image_ref_count FROM image_reference WHERE image_hash = ? FOR UPDATE", Integer.class, hash);
+				if (counts.isEmpty() || counts.get(0) > 0) {
+					return false;
+				}
+				// Products written by a version without reference counting are not counted; never delete under them
+				Integer live = jdbcTemplate.queryForObject(
+						"SELECT COUNT(*) FROM product_table WHERE product_image_hash = ? AND product_deleted = false",
+						Integer.class, hash);
+				if (live > 0) {
+					jdbcTemplate.update("UPDATE image_reference SET image_ref_count = ? WHERE image_hash = ?", live, hash);
+					return false;
+				}
+				jdbcTemplate.update("DELETE FROM image_reference WHERE image_hash = ?", hash);
+				try {
+					imageStorageService.delete(hash);
+					imageVariantService.deleteVariants(hash);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return true;
+			});
+			if (Boolean.TRUE.equals(deleted)) {
+				productImageCache.invalidate(hash);
+				logger.debug("Deleted unreferenced image {}", hash);
+			}
+		} catch (RuntimeException e) {
+			// At worst the file is left orphaned; no product refers to it any more
+			logger.warn("Could not delete unreferenced image {}", hash, e);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.klef.fsd.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface ImageStorageService {
+
+	// Streams the image to disk and names the file after the SHA-256 of its content
+	// The stored content type is sniffed from the magic bytes; declaredType is only a fallback
+	public StoredImage store(InputStream in, String declaredType) throws IOException;
+
+	// Same as store, but rejects non-image content and anything over the configured size limit
+	// (IllegalArgumentException) before the upload is fully read
+	public StoredImage storeUpload(InputStream in) throws IOException;
+
+	public String probeContentType(String hash) throws IOException;
+
+	public Path resolve(String hash);
+
+	public boolean exists(String hash);
+
+	public void delete(String hash) throws IOException;
+
+}
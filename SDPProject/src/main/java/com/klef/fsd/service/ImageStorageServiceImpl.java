@@ -0,0 +1,163 @@
+package com.klef.fsd.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+@Service
+public class ImageStorageServiceImpl implements ImageStorageService {
+
+	private static final int SNIFF_BYTES = 12;
+	private static final int COPY_BUFFER = 64 * 1024;
+
+	private final Path root;
+	private final Path tmpDir;
+	private final long maxBytes;
+	private final Set<String> allowedTypes;
+
+	public ImageStorageServiceImpl(@Value("${product.image.storage-dir:uploads/product-images}") String storageDir,
+			@Value("${product.image.max-size:20MB}") DataSize maxSize,
+			@Value("${product.image.allowed-types:image/jpeg,image/png,image/gif,image/webp}") String[] allowedTypes)
+			throws IOException {
+		this.root = Paths.get(storageDir).toAbsolutePath().normalize();
+		this.tmpDir = root.resolve("tmp");
+		this.maxBytes = maxSize.toBytes();
+		this.allowedTypes = Set.of(allowedTypes);
+		Files.createDirectories(tmpDir);
+	}
+
+	@Override
+	public StoredImage store(InputStream in, String declaredType) throws IOException {
+		return write(in, declaredType, false);
+	}
+
+	@Override
+	public StoredImage storeUpload(InputStream in) throws IOException {
+		return write(in, null, true);
+	}
+
+	/*
+	 * Copies through one fixed buffer: the image is hashed, size-checked and type-checked while it
+	 * streams to a temp file, so heap use per upload is the buffer, not the image.
+	 */
+	private StoredImage write(InputStream in, String declaredType, boolean validate) throws IOException {
+		MessageDigest digest = newDigest();
+		Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+		try {
+			byte[] buffer = new byte[COPY_BUFFER];
+			long size = 0;
+			String contentType;
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				int n = in.readNBytes(buffer, 0, SNIFF_BYTES);
+				contentType = sniff(buffer, n);
+				if (validate && (contentType == null || !allowedTypes.contains(contentType))) {
+					throw new IllegalArgumentException("Unsupported image type, allowed types are " + allowedTypes);
+				}
+				if (contentType == null) {
+					contentType = declaredType;
+				}
+				do {
+					size += n;
+					if (validate && size > maxBytes) {
+						throw new IllegalArgumentException("Image exceeds the maximum size of " + maxBytes + " bytes");
+					}
+					digest.update(buffer, 0, n);
+					out.write(buffer, 0, n);
+				} while ((n = in.read(buffer)) != -1);
+			}
+			String hash = HexFormat.of().formatHex(digest.digest());
+
+			Path target = resolve(hash);
+			if (!Files.exists(target)) {
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmp, target);
+				} catch (FileAlreadyExistsException e) {
+					// Another upload of the same content won the race; the bytes are identical
+				}
+			}
+			return new StoredImage(hash, size, contentType);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public Path resolve(String hash) {
+		if (hash == null || !hash.matches("[0-9a-f]{64}")) {
+			throw new IllegalArgumentException("Invalid image hash");
+		}
+		// Two levels of sharding (ab/cd/abcd...) keep directory sizes small
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	@Override
+	public boolean exists(String hash) {
+		return Files.exists(resolve(hash));
+	}
+
+	@Override
+	public String probeContentType(String hash) throws IOException {
+		String type = sniff(resolve(hash));
+		return type != null ? type : "application/octet-stream";
+	}
+
+	@Override
+	public void delete(String hash) throws IOException {
+		Files.deleteIfExists(resolve(hash));
+	}
+
+	// Only the first few bytes are read; browsers rely on the header to render the image
+	private static String sniff(Path file) throws IOException {
+		byte[] head = new byte[SNIFF_BYTES];
+		int n;
+		try (InputStream in = Files.newInputStream(file)) {
+			n = in.readNBytes(head, 0, head.length);
+		}
+		return sniff(head, n);
+	}
+
+	private static String sniff(byte[] head, int n) {
+		if (n >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+			return "image/jpeg";
+		}
+		if (n >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+			return "image/png";
+		}
+		if (n >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+			return "image/gif";
+		}
+		if (n >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+				&& head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+			return "image/webp";
+		}
+		if (n >= 2 && head[0] == 'B' && head[1] == 'M') {
+			return "image/bmp";
+		}
+		return null;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.klef.fsd.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface ImageVariantService {
+
+	// Queues downscaled copies of a stored image; returns immediately
+	public void generateVariantsAsync(String hash);
+
+	// True when some configured variant is at least this wide, i.e. the original is not needed
+	public boolean coversWidth(int width);
+
+	// Smallest ready variant at least this wide, or null (caller falls back to the original)
+	public Path findVariant(String hash, int width);
+
+	// Removes every variant of the image, for when the original itself is deleted
+	public void deleteVariants(String hash) throws IOException;
+
+}
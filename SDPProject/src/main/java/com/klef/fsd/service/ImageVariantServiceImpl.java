@@ -0,0 +1,219 @@
+package com.klef.fsd.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates downscaled copies of product images next to the original in the image store
+ * (ab/cd/&lt;hash&gt;.w480.jpg). Work runs on a small bounded pool so a burst of uploads can
+ * never hold more than a few decoded images in memory at once.
+ */
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageVariantServiceImpl.class);
+
+	private final ImageStorageService imageStorageService;
+	private final int[] widths;
+	private final ThreadPoolExecutor executor;
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+	@Autowired
+	public ImageVariantServiceImpl(ImageStorageService imageStorageService,
+			@Value("${product.image.variant-widths:160,480,1024}") int[] widths,
+			@Value("${product.image.variant-workers:2}") int workers,
+			@Value("${product.image.variant-queue:200}") int queueSize) {
+		this.imageStorageService = imageStorageService;
+		this.widths = Arrays.stream(widths).sorted().toArray();
+		AtomicInteger n = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), r -> {
+					Thread t = new Thread(r, "image-variants-" + n.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	@Override
+	public void generateVariantsAsync(String hash) {
+		if (hash == null || !inFlight.add(hash)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					generate(hash);
+				} catch (Exception e) {
+					logger.error("Could not generate variants for image {}: {}", hash, e.getMessage());
+				} finally {
+					inFlight.remove(hash);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Queue is full; the next request for a variant re-queues it
+			inFlight.remove(hash);
+			logger.warn("Image variant queue is full, deferring image {}", hash);
+		}
+	}
+
+	@Override
+	public boolean coversWidth(int width) {
+		return width <= widths[widths.length - 1];
+	}
+
+	@Override
+	public Path findVariant(String hash, int width) {
+		Path original = imageStorageService.resolve(hash);
+		for (int w : widths) {
+			if (w < width) {
+				continue;
+			}
+			for (String ext : new String[] { "jpg", "png" }) {
+				Path variant = variantPath(original, w, ext);
+				if (Files.exists(variant)) {
+					return variant;
+				}
+			}
+		}
+		// Images stored before this pipeline existed (or lost from the queue) are picked up lazily
+		if (!Files.exists(markerPath(original))) {
+			generateVariantsAsync(hash);
+		}
+		return null;
+	}
+
+	@Override
+	public void deleteVariants(String hash) throws IOException {
+		Path original = imageStorageService.resolve(hash);
+		if (!Files.isDirectory(original.getParent())) {
+			return;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(original.getParent(), hash + ".*")) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private void generate(String hash) throws IOException {
+		Path original = imageStorageService.resolve(hash);
+		if (!Files.exists(original) || Files.exists(markerPath(original))) {
+			return;
+		}
+
+		BufferedImage source = read(original, widths[widths.length - 1]);
+		if (source == null) {
+			logger.warn("Image {} is not in a format ImageIO can decode, serving original only", hash);
+		} else {
+			String ext = source.getColorModel().hasAlpha() ? "png" : "jpg";
+			// Largest first so every smaller size is scaled from an already reduced image
+			BufferedImage current = source;
+			for (int i = widths.length - 1; i >= 0; i--) {
+				int w = widths[i];
+				if (current.getWidth() <= w) {
+					continue; // never upscale; the original is served instead
+				}
+				current = scale(current, w);
+				write(current, ext, variantPath(original, w, ext));
+			}
+		}
+		Files.createFile(markerPath(original));
+	}
+
+	// Decodes with source subsampling so a 20MB photo is never fully expanded just to make thumbnails
+	private static BufferedImage read(Path file, int maxWidth) throws IOException {
+		try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				ImageReadParam param = reader.getDefaultReadParam();
+				int step = Math.max(1, reader.getWidth(0) / (maxWidth * 2));
+				param.setSourceSubsampling(step, step, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private static BufferedImage scale(BufferedImage src, int width) {
+		int height = Math.max(1, (int) Math.round((double) src.getHeight() * width / src.getWidth()));
+		int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage dst = new BufferedImage(width, height, type);
+		Graphics2D g = dst.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(src, 0, 0, width, height, null);
+		} finally {
+			g.dispose();
+		}
+		return dst;
+	}
+
+	private static void write(BufferedImage image, String ext, Path target) throws IOException {
+		Path tmp = target.resolveSibling(target.getFileName() + ".part");
+		ImageWriter writer = ImageIO.getImageWritersByFormatName(ext).next();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+			writer.setOutput(out);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if ("jpg".equals(ext)) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(0.85f);
+			}
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static Path variantPath(Path original, int width, String ext) {
+		return original.resolveSibling(original.getFileName() + ".w" + width + "." + ext);
+	}
+
+	private static Path markerPath(Path original) {
+		return original.resolveSibling(original.getFileName() + ".variants");
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
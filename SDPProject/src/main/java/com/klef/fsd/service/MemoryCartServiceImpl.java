@@ -0,0 +1,418 @@
+package com.klef.fsd.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.Buyer;
+import com.klef.fsd.model.Cart;
+import com.klef.fsd.model.Farmer;
+import com.klef.fsd.model.Product;
+import com.klef.fsd.repository.BuyerRepository;
+import com.klef.fsd.repository.CartRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cart storage that keeps each active buyer's cart in memory (cart.storage.mode=memory).
+ *
+ * A cart is loaded from cart_table on first use, which is also how carts come back after a
+ * restart or crash, and product details are joined from the catalog cache when it is read. Cart
+ * listings, counts and quantity changes are then answered from memory; changed quantities are
+ * written back to cart_table, one batch per buyer, every flush interval and on shutdown, so a crash
+ * loses at most the quantity edits of that interval.
+ *
+ * Adding a product, removing a row and clearing a cart still go to the table at once: they create
+ * or drop the row ids clients address, the 10-item rule stays backed by the table, and the checkout
+ * clear leaves nothing pending for that buyer. Carts idle past the idle timeout are dropped from
+ * memory once flushed. The in-memory state is per instance, so this mode suits a single instance.
+ */
+@Service
+@Transactional(propagation = Propagation.SUPPORTS)
+@ConditionalOnProperty(name = "cart.storage.mode", havingValue = "memory")
+public class MemoryCartServiceImpl extends CartServiceImpl {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryCartServiceImpl.class);
+
+    private static final String UPDATE_QUANTITY = "UPDATE cart_table SET quantity = ? WHERE cart_id = ?";
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private BuyerRepository buyerRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartMutationLocks cartLocks;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cart.memory.flush-interval:5s}")
+    private Duration flushInterval;
+
+    @Value("${cart.memory.idle-timeout:30m}")
+    private Duration idleTimeout;
+
+    private static final class Line {
+        final int cartId;
+        final int productId;
+        int quantity;
+        boolean dirty;
+
+        Line(int cartId, int productId, int quantity) {
+            this.cartId = cartId;
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+    }
+
+    // Only touched under the buyer's lock
+    private static final class LiveCart {
+        final Map<Integer, Line> lines = new LinkedHashMap<>(); // by product id, in cart order
+        long lastUsed = System.nanoTime();
+    }
+
+    private final Map<Integer, LiveCart> carts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CartDTO addToCart(Cart cart) {
+        if (cart == null || cart.getProduct() == null || cart.getBuyer() == null) {
+            throw new IllegalArgumentException("Cart, product, or buyer cannot be null");
+        }
+        if (cart.getQuantity() < 1 || cart.getQuantity() > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_QUANTITY);
+        }
+        int buyerId = cart.getBuyer().getId();
+        int productId = cart.getProduct().getId();
+        return cartLocks.locked(buyerId, () -> {
+            LiveCart live = live(buyerId);
+            if (live == null) {
+                throw new IllegalArgumentException("Buyer does not exist");
+            }
+            Line line = live.lines.get(productId);
+            if (line != null) {
+                ProductDTO product = product(productId);
+                if (product == null) {
+                    throw new IllegalArgumentException("Product does not exist");
+                }
+                line.quantity = Math.min(line.quantity + cart.getQuantity(), MAX_QUANTITY);
+                line.dirty = true;
+                return toDTO(line, product);
+            }
+            CartDTO added = super.addToCart(cart);
+            live.lines.put(productId, new Line(added.getId(), productId, added.getQuantity()));
+            return added;
+        });
+    }
+
+    @Override
+    public List<CartDTO> getCartItemsByBuyerId(int buyerId) {
+        List<Line> lines = cartLocks.locked(buyerId, () -> {
+            LiveCart live = live(buyerId);
+            if (live == null) {
+                return null;
+            }
+            List<Line> copy = new ArrayList<>(live.lines.size());
+            for (Line line : live.lines.values()) {
+                copy.add(new Line(line.cartId, line.productId, line.quantity));
+            }
+            return copy;
+        });
+        if (lines == null) {
+            return null;
+        }
+
+        List<Integer> productIds = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            productIds.add(line.productId);
+        }
+        Map<Integer, ProductDTO> products = new HashMap<>();
+        for (ProductBatchItemDTO item : productService.getProductDTOsByIds(productIds)) {
+            products.put(item.getId(), item.getProduct());
+        }
+        List<CartDTO> items = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            ProductDTO product = products.get(line.productId);
+            // A product deleted since the cart was loaded; its row is gone already
+            if (product != null) {
+                items.add(toDTO(line, product));
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public void removeCartItem(int cartId) {
+        Integer buyerId = cartRepository.findBuyerIdByCartId(cartId);
+        if (buyerId == null) {
+            throw new IllegalArgumentException("Cart item does not exist");
+        }
+        cartLocks.locked(buyerId, () -> {
+            super.removeCartItem(cartId);
+            LiveCart live = carts.get(buyerId);
+            if (live != null) {
+                live.lines.values().removeIf(line -> line.cartId == cartId);
+            }
+            return null;
+        });
+    }
+
+    // Checkout ends here, so the buyer is left with nothing waiting to be flushed
+    @Override
+    public void clearCartByBuyerId(int buyerId) {
+        cartLocks.locked(buyerId, () -> {
+            super.clearCartByBuyerId(buyerId);
+            carts.put(buyerId, new LiveCart());
+            return null;
+        });
+    }
+
+    @Override
+    public Cart updateCartQuantity(int buyerId, int productId, int quantity) {
+        if (quantity < 1 || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_QUANTITY);
+        }
+        // Resolved first, so a rejected update leaves the line untouched and nothing marked for flushing
+        ProductDTO product = product(productId);
+        if (product == null) {
+            throw new IllegalArgumentException("Product does not exist");
+        }
+        Line updated = cartLocks.locked(buyerId, () -> {
+            LiveCart live = live(buyerId);
+            if (live == null) {
+                throw new IllegalArgumentException("Buyer does not exist");
+            }
+            Line line = live.lines.get(productId);
+            if (line == null) {
+                return null;
+            }
+            line.quantity = quantity;
+            line.dirty = true;
+            return new Line(line.cartId, productId, quantity);
+        });
+        if (updated == null) {
+            throw new IllegalArgumentException("Cart item does not exist for this buyer and product");
+        }
+        return toCart(buyerId, updated, product);
+    }
+
+    @Override
+    public int getCartCountByBuyerId(int buyerId) {
+        return cartLocks.locked(buyerId, () -> {
+            LiveCart live = live(buyerId);
+            if (live == null) {
+                throw new IllegalArgumentException("Buyer does not exist");
+            }
+            return live.lines.size();
+        });
+    }
+
+    // Summed from the live cart and the catalog cache, so neither the summary cache nor the table is involved
+    @Override
+    public CartSummaryDTO getCartSummary(int buyerId) {
+        List<CartDTO> items = getCartItemsByBuyerId(buyerId);
+        if (items == null) {
+            throw new IllegalArgumentException("Buyer does not exist");
+        }
+        int totalQuantity = 0;
+        double totalAmount = 0;
+        for (CartDTO item : items) {
+            totalQuantity += item.getQuantity();
+            totalAmount += item.getQuantity() * item.getProduct().getCost();
+        }
+        return new CartSummaryDTO(items.size(), totalQuantity, totalAmount);
+    }
+
+    /*
+     * The batch is applied to the table, together with this buyer's unflushed quantities so it starts
+     * from the cart the buyer sees; the live cart is then reloaded on next use. A rejected batch rolls
+     * both back and leaves the quantities pending as before.
+     */
+    @Override
+    public List<CartDTO> applyBatch(int buyerId, List<CartOperationDTO> operations) {
+        return cartLocks.locked(buyerId, () -> {
+            List<CartDTO> result = cartLocks.call(buyerId, () -> {
+                LiveCart live = carts.get(buyerId);
+                if (live != null) {
+                    List<Object[]> updates = new ArrayList<>();
+                    for (Line line : live.lines.values()) {
+                        if (line.dirty) {
+                            updates.add(new Object[] { line.quantity, line.cartId });
+                        }
+                    }
+                    if (!updates.isEmpty()) {
+                        jdbcTemplate.batchUpdate(UPDATE_QUANTITY, updates);
+                    }
+                }
+                return super.applyBatch(buyerId, operations);
+            });
+            carts.remove(buyerId);
+            return result;
+        });
+    }
+
+    // Deleted products have their rows removed by ProductService; drop them from live carts as well
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onCatalogChanged(ProductCatalogEvent event) {
+        if (event.getRemovedIds().isEmpty()) {
+            return;
+        }
+        for (Integer buyerId : carts.keySet()) {
+            cartLocks.locked(buyerId, () -> {
+                LiveCart live = carts.get(buyerId);
+                if (live != null) {
+                    live.lines.keySet().removeAll(event.getRemovedIds());
+                }
+                return null;
+            });
+        }
+    }
+
+    // Caller holds the buyer's lock; null for an unknown buyer
+    private LiveCart live(int buyerId) {
+        LiveCart live = carts.get(buyerId);
+        if (live == null) {
+            List<CartDTO> rows = cartRepository.findCartDTOsByBuyerId(buyerId);
+            if (rows.isEmpty() && !buyerRepository.existsById(buyerId)) {
+                return null;
+            }
+            live = new LiveCart();
+            for (CartDTO row : rows) {
+                live.lines.put(row.getProduct().getId(), new Line(row.getId(), row.getProduct().getId(), row.getQuantity()));
+            }
+            carts.put(buyerId, live);
+        }
+        live.lastUsed = System.nanoTime();
+        return live;
+    }
+
+    private ProductDTO product(int productId) {
+        return productService.getProductDTOsByIds(List.of(productId)).get(0).getProduct();
+    }
+
+    /*
+     * Each buyer's quantities are written, and only then marked clean, under that buyer's lock, so a
+     * batch or checkout for the buyer runs wholly before or after the write and never starts from
+     * quantities that are on their way to the table.
+     */
+    void flush() {
+        long idleSince = System.nanoTime() - idleTimeout.toNanos();
+        int flushed = 0;
+        for (Integer buyerId : carts.keySet()) {
+            try {
+                flushed += cartLocks.locked(buyerId, () -> flush(buyerId, idleSince));
+            } catch (RuntimeException e) {
+                // Setting a quantity is idempotent, so the lines stay dirty and are written next time
+                logger.warn("Cart flush failed for buyer {}; retrying on the next pass", buyerId, e);
+            }
+        }
+        if (flushed > 0) {
+            logger.debug("Flushed {} cart quantities", flushed);
+        }
+    }
+
+    // Caller holds the buyer's lock; returns the number of lines written
+    private int flush(int buyerId, long idleSince) {
+        LiveCart live = carts.get(buyerId);
+        if (live == null) {
+            return 0;
+        }
+        List<Line> dirty = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Line line : live.lines.values()) {
+            if (line.dirty) {
+                dirty.add(line);
+                updates.add(new Object[] { line.quantity, line.cartId });
+            }
+        }
+        if (dirty.isEmpty()) {
+            if (live.lastUsed - idleSince < 0) {
+                carts.remove(buyerId);
+            }
+            return 0;
+        }
+        // A row removed since the cart was loaded just updates nothing
+        cartLocks.call(buyerId, () -> jdbcTemplate.batchUpdate(UPDATE_QUANTITY, updates));
+        dirty.forEach(line -> line.dirty = false);
+        return dirty.size();
+    }
+
+    private static CartDTO toDTO(Line line, ProductDTO product) {
+        CartDTO dto = new CartDTO();
+        dto.setId(line.cartId);
+        dto.setQuantity(line.quantity);
+        dto.setProduct(product);
+        return dto;
+    }
+
+    // CartController maps the returned entity itself; these are detached copies, never persisted
+    private static Cart toCart(int buyerId, Line line, ProductDTO dto) {
+        Buyer buyer = new Buyer();
+        buyer.setId(buyerId);
+        Product product = new Product();
+        product.setId(dto.getId());
+        product.setName(dto.getName());
+        product.setCategory(dto.getCategory());
+        product.setDescription(dto.getDescription());
+        product.setCost(dto.getCost());
+        if (dto.getFarmer_id() != 0) {
+            Farmer farmer = new Farmer();
+            farmer.setId(dto.getFarmer_id());
+            product.setFarmer(farmer);
+        }
+        Cart cart = new Cart();
+        cart.setCid(line.cartId);
+        cart.setBuyer(buyer);
+        cart.setProduct(product);
+        cart.setQuantity(line.quantity);
+        return cart;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        flush();
+    }
+}
@@ -0,0 +1,16 @@
+package com.klef.fsd.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipFile;
+
+import com.klef.fsd.dto.ImportReportDTO;
+
+public interface ProductImportService {
+
+	// Reads CSV (with a header row) or NDJSON rows as they arrive and inserts them for the farmer
+	// in batches; invalid rows are reported instead of failing the import. images may be null.
+	// Throws IllegalArgumentException for an unknown farmer or format.
+	public ImportReportDTO importProducts(int farmerId, InputStream rows, String format, ZipFile images) throws IOException;
+
+}
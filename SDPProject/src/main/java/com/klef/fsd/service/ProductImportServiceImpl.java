@@ -0,0 +1,523 @@
+package com.klef.fsd.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klef.fsd.dto.ImportErrorDTO;
+import com.klef.fsd.dto.ImportReportDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.Category;
+import com.klef.fsd.repository.FarmerRepository;
+
+/**
+ * Bulk product import that never holds more than one batch of rows in memory.
+ *
+ * Rows are parsed from the stream one at a time and validated; valid rows are collected into a
+ * batch that is inserted with a single JDBC batch statement in its own transaction. A batch that
+ * fails is rolled back and its rows reported, earlier batches stay committed. Images referenced by
+ * a row are read from the optional zip by entry name and stored like regular uploads.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+	// Well above every column limit (the description allows 500), small enough that one broken row
+	// cannot pull the rest of the upload onto the heap
+	private static final int MAX_FIELD_LENGTH = 4 * 1024;
+	private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+	private static final String INSERT_SQL = "INSERT INTO product_table (product_category, category_id, product_name, product_desc, "
+			+ "product_cost, product_image_hash, product_image_type, product_image_size, farmer_id, "
+			+ "product_change_version, product_updated_at, product_deleted) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private FarmerRepository farmerRepository;
+
+	@Autowired
+	private ImageStorageService imageStorageService;
+
+	@Autowired
+	private ImageVariantService imageVariantService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CatalogVersionService catalogVersionService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private ImageReferenceService imageReferenceService;
+
+	@Value("${product.import.batch-size:500}")
+	private int batchSize;
+
+	@Value("${product.import.max-reported-errors:1000}")
+	private int maxReportedErrors;
+
+	// One parsed input row; fields are raw text and may be missing
+	private static final class Row {
+		final long number;
+		String name;
+		String category;
+		String description;
+		String cost;
+		String image;
+		String parseError;
+
+		Row(long number) {
+			this.number = number;
+		}
+	}
+
+	private static final class Pending {
+		final long row;
+		final String name;
+		final Category category;
+		final String description;
+		final double cost;
+		final StoredImage image;
+
+		Pending(long row, String name, Category category, String description, double cost, StoredImage image) {
+			this.row = row;
+			this.name = name;
+			this.category = category;
+			this.description = description;
+			this.cost = cost;
+			this.image = image;
+		}
+	}
+
+	private interface RowReader {
+		// Next row, or null at the end of the input
+		Row next() throws IOException;
+	}
+
+	@Override
+	public ImportReportDTO importProducts(int farmerId, InputStream rows, String format, ZipFile images)
+			throws IOException {
+		if (!farmerRepository.existsById(farmerId)) {
+			throw new IllegalArgumentException("Farmer not found with ID " + farmerId);
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(rows, StandardCharsets.UTF_8), 64 * 1024);
+		RowReader rowReader = switch (format == null ? "" : format.toLowerCase(Locale.ROOT)) {
+			case "csv" -> new CsvRowReader(reader);
+			case "ndjson", "jsonl" -> new NdjsonRowReader(reader);
+			default -> throw new IllegalArgumentException("Unsupported import format: " + format + " (use csv or ndjson)");
+		};
+
+		ImportReportDTO report = new ImportReportDTO();
+		List<Pending> batch = new ArrayList<>(batchSize);
+		Row row;
+		try {
+			while ((row = rowReader.next()) != null) {
+				try {
+					batch.add(validate(row, images));
+				} catch (IllegalArgumentException e) {
+					fail(report, row.number, e.getMessage());
+					continue;
+				}
+				if (batch.size() >= batchSize) {
+					flush(farmerId, batch, report);
+				}
+			}
+			flush(farmerId, batch, report);
+		} finally {
+			// Only left non-empty when the import was aborted; their images were stored but never written
+			for (Pending p : batch) {
+				if (p.image != null) {
+					imageReferenceService.discard(p.image);
+				}
+			}
+		}
+		return report;
+	}
+
+	private Pending validate(Row row, ZipFile images) throws IOException {
+		if (row.parseError != null) {
+			throw new IllegalArgumentException(row.parseError);
+		}
+		String name = required(row.name, "name", 100);
+		Category category = categoryService.resolve(required(row.category, "category", 100));
+		String description = required(row.description, "description", 500);
+		double cost;
+		try {
+			cost = Double.parseDouble(required(row.cost, "cost", 50));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("cost is not a number: " + row.cost);
+		}
+		if (!Double.isFinite(cost) || cost < 0) {
+			throw new IllegalArgumentException("cost must be zero or more");
+		}
+
+		StoredImage image = null;
+		if (row.image != null && !row.image.isBlank()) {
+			if (images == null) {
+				throw new IllegalArgumentException("image " + row.image + " given but no images zip was uploaded");
+			}
+			ZipEntry entry = images.getEntry(row.image.trim());
+			if (entry == null || entry.isDirectory()) {
+				throw new IllegalArgumentException("image " + row.image + " not found in the images zip");
+			}
+			try (InputStream in = images.getInputStream(entry)) {
+				image = imageStorageService.storeUpload(in);
+			}
+		}
+		return new Pending(row.number, name, category, description, cost, image);
+	}
+
+	private static String required(String value, String field, int maxLength) {
+		if (value == null || value.isBlank()) {
+			throw new IllegalArgumentException(field + " is required");
+		}
+		String trimmed = value.trim();
+		if (trimmed.length() > maxLength) {
+			throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+		}
+		return trimmed;
+	}
+
+	private void flush(int farmerId, List<Pending> batch, ImportReportDTO report) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				// Sorted so concurrent imports sharing images lock the reference rows in the same order
+				Map<String, Integer> uses = new TreeMap<>();
+				Map<String, StoredImage> images = new HashMap<>();
+				for (Pending p : batch) {
+					if (p.image != null) {
+						uses.merge(p.image.getHash(), 1, Integer::sum);
+						images.putIfAbsent(p.image.getHash(), p.image);
+					}
+				}
+				for (StoredImage image : images.values()) {
+					imageReferenceService.discardOnRollback(image);
+				}
+
+				long firstVersion = catalogVersionService.reserve(batch.size());
+				Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+				GeneratedKeyHolder keys = new GeneratedKeyHolder();
+				jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+						new BatchPreparedStatementSetter() {
+							@Override
+							public void setValues(PreparedStatement ps, int i) throws SQLException {
+								Pending p = batch.get(i);
+								ps.setString(1, p.category.getName());
+								ps.setInt(2, p.category.getId());
+								ps.setString(3, p.name);
+								ps.setString(4, p.description);
+								ps.setDouble(5, p.cost);
+								if (p.image != null) {
+									ps.setString(6, p.image.getHash());
+									ps.setString(7, p.image.getContentType());
+									ps.setLong(8, p.image.getSize());
+								} else {
+									ps.setNull(6, Types.VARCHAR);
+									ps.setNull(7, Types.VARCHAR);
+									ps.setLong(8, 0);
+								}
+								ps.setInt(9, farmerId);
+								ps.setLong(10, firstVersion + i);
+								ps.setTimestamp(11, now);
+							}
+
+							@Override
+							public int getBatchSize() {
+								return batch.size();
+							}
+						}, keys);
+
+				for (Map.Entry<String, Integer> use : uses.entrySet()) {
+					imageReferenceService.acquire(images.get(use.getKey()), use.getValue());
+				}
+
+				// Listeners run after commit, so caches never see rows that were rolled back
+				List<Map<String, Object>> keyList = keys.getKeyList();
+				List<ProductDTO> added = new ArrayList<>(batch.size());
+				for (int i = 0; i < batch.size(); i++) {
+					Pending p = batch.get(i);
+					int id = ((Number) keyList.get(i).values().iterator().next()).intValue();
+					added.add(new ProductDTO(id, p.name, p.category.getName(), p.description, p.cost, farmerId,
+							p.image != null ? p.image.getHash() : null, 0));
+				}
+				eventPublisher.publishEvent(ProductCatalogEvent.upserted(added));
+			});
+		} catch (DataAccessException | IllegalStateException e) {
+			Throwable cause = e instanceof DataAccessException d ? d.getMostSpecificCause() : e;
+			String message = "not imported, batch failed: " + cause.getMessage();
+			for (Pending p : batch) {
+				fail(report, p.row, message);
+			}
+			batch.clear();
+			return;
+		}
+
+		report.setImported(report.getImported() + batch.size());
+		Set<String> hashes = new LinkedHashSet<>();
+		for (Pending p : batch) {
+			if (p.image != null) {
+				hashes.add(p.image.getHash());
+			}
+		}
+		for (String hash : hashes) {
+			imageVariantService.generateVariantsAsync(hash);
+		}
+		batch.clear();
+	}
+
+	private void fail(ImportReportDTO report, long row, String message) {
+		report.setFailed(report.getFailed() + 1);
+		if (report.getErrors().size() < maxReportedErrors) {
+			report.getErrors().add(new ImportErrorDTO(row, message));
+		} else {
+			report.setErrorsTruncated(true);
+		}
+	}
+
+	private final class NdjsonRowReader implements RowReader {
+		private final BufferedReader reader;
+		private long number;
+
+		NdjsonRowReader(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		private final StringBuilder line = new StringBuilder();
+		private boolean overlong;
+
+		@Override
+		public Row next() throws IOException {
+			String text;
+			while ((text = readLine()) != null && text.isBlank() && !overlong) {
+				number++;
+			}
+			if (text == null) {
+				return null;
+			}
+			Row row = new Row(++number);
+			if (overlong) {
+				row.parseError = "line is longer than " + MAX_LINE_LENGTH + " characters";
+				return row;
+			}
+			try {
+				JsonNode node = objectMapper.readTree(text);
+				if (!node.isObject()) {
+					row.parseError = "line is not a JSON object";
+					return row;
+				}
+				row.name = text(node, "name");
+				row.category = text(node, "category");
+				row.description = text(node, "description");
+				row.cost = text(node, "cost");
+				row.image = text(node, "image");
+			} catch (JsonProcessingException e) {
+				row.parseError = "malformed JSON: " + e.getOriginalMessage();
+			}
+			return row;
+		}
+
+		// Like BufferedReader.readLine, but keeps at most MAX_LINE_LENGTH characters and skips the rest
+		private String readLine() throws IOException {
+			line.setLength(0);
+			overlong = false;
+			int c;
+			while ((c = reader.read()) >= 0 && c != '\n') {
+				if (line.length() < MAX_LINE_LENGTH) {
+					line.append((char) c);
+				} else {
+					overlong = true;
+				}
+			}
+			if (c < 0 && line.length() == 0 && !overlong) {
+				return null;
+			}
+			if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+				line.setLength(line.length() - 1);
+			}
+			return line.toString();
+		}
+
+		private String text(JsonNode node, String field) {
+			JsonNode value = node.get(field);
+			return value == null || value.isNull() ? null : value.asText();
+		}
+	}
+
+	/**
+	 * RFC 4180 CSV: the first record is the header and names the columns (name, category,
+	 * description, cost and optionally image, in any order). Quoted fields may contain commas,
+	 * doubled quotes and line breaks. A field over MAX_FIELD_LENGTH or a record over MAX_LINE_LENGTH
+	 * is reported as an error and parsing resumes at the next line break, so an unterminated quote
+	 * costs one row rather than buffering the rest of the upload.
+	 */
+	private static final class CsvRowReader implements RowReader {
+		private final Reader reader;
+		private Map<String, Integer> columns;
+		private long number;
+		private boolean eof;
+		// Set by nextRecord when the record was cut short
+		private String overflow;
+
+		CsvRowReader(Reader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public Row next() throws IOException {
+			if (columns == null) {
+				List<String> header = nextRecord();
+				if (header == null) {
+					return null;
+				}
+				if (overflow != null) {
+					throw new IllegalArgumentException("CSV header: " + overflow);
+				}
+				columns = new HashMap<>();
+				for (int i = 0; i < header.size(); i++) {
+					columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+				}
+				for (String required : List.of("name", "category", "description", "cost")) {
+					if (!columns.containsKey(required)) {
+						throw new IllegalArgumentException("CSV header is missing the " + required + " column");
+					}
+				}
+			}
+			List<String> record = nextRecord();
+			if (record == null) {
+				return null;
+			}
+			Row row = new Row(++number);
+			if (overflow != null) {
+				row.parseError = overflow;
+				return row;
+			}
+			row.name = field(record, "name");
+			row.category = field(record, "category");
+			row.description = field(record, "description");
+			row.cost = field(record, "cost");
+			row.image = field(record, "image");
+			return row;
+		}
+
+		private String field(List<String> record, String column) {
+			Integer i = columns.get(column);
+			return i == null || i >= record.size() ? null : record.get(i);
+		}
+
+		// Next non-empty record, or null at the end of the input
+		private List<String> nextRecord() throws IOException {
+			while (!eof) {
+				List<String> record = new ArrayList<>();
+				StringBuilder field = new StringBuilder();
+				boolean quoted = false;
+				boolean any = false;
+				int length = 0;
+				overflow = null;
+				while (true) {
+					int c = reader.read();
+					if (c < 0) {
+						eof = true;
+						break;
+					}
+					any = true;
+					if (overflow != null) {
+						// Resynchronize at the next line break, quoted or not
+						if (c == '\n') {
+							break;
+						}
+						continue;
+					}
+					if (++length > MAX_LINE_LENGTH) {
+						overflow = "row is longer than " + MAX_LINE_LENGTH + " characters";
+						record.clear();
+						field.setLength(0);
+						if (c == '\n') {
+							break;
+						}
+						continue;
+					}
+					if (quoted) {
+						if (c == '"') {
+							reader.mark(1);
+							if (reader.read() == '"') {
+								field.append('"');
+							} else {
+								reader.reset();
+								quoted = false;
+							}
+						} else {
+							field.append((char) c);
+						}
+					} else if (c == '"') {
+						quoted = true;
+					} else if (c == ',') {
+						record.add(field.toString());
+						field.setLength(0);
+					} else if (c == '\n') {
+						break;
+					} else if (c != '\r') {
+						field.append((char) c);
+					}
+					if (field.length() > MAX_FIELD_LENGTH) {
+						overflow = "field is longer than " + MAX_FIELD_LENGTH + " characters";
+						record.clear();
+						field.setLength(0);
+					}
+				}
+				record.add(field.toString());
+				// Skip blank lines rather than reporting them as empty rows
+				if (overflow != null || any && !(record.size() == 1 && record.get(0).isBlank())) {
+					return record;
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -2,6 +2,13 @@ package com.klef.fsd.service;
 
 import java.util.List;
 
+import com.klef.fsd.dto.BulkUpdateItemDTO;
+import com.klef.fsd.dto.BulkUpdateResultDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductChangesDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.dto.ProductDetailDTO;
+import com.klef.fsd.dto.ProductPageDTO;
 import com.klef.fsd.model.Product;
 
 public interface ProductService {
@@ -9,11 +16,31 @@ public interface ProductService {
 	public String addProduct(Product product);
 	
 	public String updateProduct(Product product);
+
+	// Applies partial updates to one farmer's products; ids that do not match are returned as conflicts
+	public BulkUpdateResultDTO bulkUpdate(int farmerId, List<BulkUpdateItemDTO> updates);
 	
 	public String deleteProduct(int pid);
 
 	public List<Product> viewallProducts();
 
+	public List<ProductDTO> viewallProductDTOs();
+
+	public List<ProductDTO> viewProductDTOsByFarmer(int fid);
+
+	public List<ProductDTO> viewProductDTOsByCategory(String category);
+
+	public ProductDTO getProductDTOById(int pid);
+
+	public List<ProductBatchItemDTO> getProductDTOsByIds(List<Integer> ids);
+
+	// Everything the product page needs; buyerId may be null. Returns null for unknown products.
+	public ProductDetailDTO getProductDetail(int id, Integer buyerId);
+
+	public ProductChangesDTO viewChangesSince(long since, int limit);
+
+	public ProductPageDTO viewCatalogPage(int afterId, int limit, String category, Double minCost, Double maxCost);
+
 	public List<Product> viewProductsByFarmer(int fid);
 
 	public List<Product> viewProductsByCategory(String category);
@@ -22,6 +49,8 @@ public interface ProductService {
 	
 	public Product getProductById(int pid);
 
+	public StoredImage getProductImage(int pid);
+
 	
 	
 	
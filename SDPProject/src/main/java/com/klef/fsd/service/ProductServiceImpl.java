@@ -1,57 +1,309 @@
 package com.klef.fsd.service;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.klef.fsd.cache.CatalogCache;
+import com.klef.fsd.cache.ProductImageCache;
+import com.klef.fsd.dto.BulkUpdateItemDTO;
+import com.klef.fsd.dto.BulkUpdateResultDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductChangeDTO;
+import com.klef.fsd.dto.ProductChangesDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.dto.ProductDetailDTO;
+import com.klef.fsd.dto.ProductPageDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+import com.klef.fsd.model.Category;
 import com.klef.fsd.model.Product;
 import com.klef.fsd.model.Farmer;
+import com.klef.fsd.repository.CartRepository;
 import com.klef.fsd.repository.ProductRepository;
 import com.klef.fsd.repository.FarmerRepository;
 
+import jakarta.annotation.PreDestroy;
+
 @Service
 public class ProductServiceImpl implements ProductService {
 
+	// As many as the product page shows
+	private static final int RELATED_LIMIT = 4;
+	// Each detail request runs up to three lookups; kept below the connection pool (10 by default)
+	private static final int DETAIL_THREADS = 8;
+
 	@Autowired
 	private ProductRepository productRepository;
 
 	@Autowired
 	private FarmerRepository farmerRepository;
 
+	@Autowired
+	private ImageReferenceService imageReferenceService;
+
+	@Autowired
+	private CatalogCache catalogCache;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CatalogVersionService catalogVersionService;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private ProductImageCache productImageCache;
+
+	private final AtomicInteger detailThreads = new AtomicInteger();
+	private final ExecutorService detailExecutor = Executors.newFixedThreadPool(DETAIL_THREADS, r -> {
+		Thread t = new Thread(r, "product-detail-" + detailThreads.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	});
+
 	@Override
+	@Transactional
 	public String addProduct(Product product) {
-		productRepository.save(product);
+		if (product.getImageHash() != null) {
+			imageReferenceService.discardOnRollback(imageOf(product));
+		}
+		applyCategory(product);
+		stamp(product);
+		if (product.getImageHash() != null) {
+			imageReferenceService.acquire(imageOf(product), 1);
+		}
+		// Flushed so the event carries the incremented version rather than the one read
+		Product saved = productRepository.saveAndFlush(product);
+		eventPublisher.publishEvent(ProductCatalogEvent.upserted(toDTO(saved)));
 		return "Product Added Successfully";
 	}
 
 	@Override
 	public List<Product> viewallProducts() {
 
-		return productRepository.findAll();
+		return productRepository.findByDeletedFalse();
+	}
+
+	@Override
+	public List<ProductDTO> viewallProductDTOs() {
+		if (catalogCache.isReady()) {
+			return catalogCache.getAll();
+		}
+		return productRepository.findAllProductDTOs();
+	}
+
+	@Override
+	public List<ProductDTO> viewProductDTOsByCategory(String category) {
+		if (catalogCache.isReady()) {
+			return catalogCache.getByCategory(category);
+		}
+		Integer categoryId = categoryService.findId(category);
+		return categoryId != null ? productRepository.findProductDTOsByCategoryId(categoryId) : List.of();
+	}
+
+	@Override
+	public List<ProductDTO> viewProductDTOsByFarmer(int fid) {
+		if (catalogCache.isReady()) {
+			return catalogCache.getByFarmer(fid);
+		}
+		return productRepository.findProductDTOsByFarmerId(fid);
+	}
+
+	@Override
+	public ProductDTO getProductDTOById(int id) {
+		if (catalogCache.isReady()) {
+			return catalogCache.get(id);
+		}
+		return productRepository.findProductDTOById(id);
+	}
+
+	@Override
+	public List<ProductBatchItemDTO> getProductDTOsByIds(List<Integer> ids) {
+		Map<Integer, ProductDTO> found = new HashMap<>();
+		Set<Integer> missing = new LinkedHashSet<>();
+		boolean cached = catalogCache.isReady();
+		for (Integer id : ids) {
+			ProductDTO dto = cached ? catalogCache.get(id) : null;
+			if (dto != null) {
+				found.put(id, dto);
+			} else {
+				missing.add(id);
+			}
+		}
+		// Whatever the cache could not answer is fetched with one IN query
+		if (!missing.isEmpty()) {
+			for (ProductDTO dto : productRepository.findProductDTOsByIds(missing)) {
+				found.put(dto.getId(), dto);
+			}
+		}
+
+		List<ProductBatchItemDTO> items = new ArrayList<>(ids.size());
+		for (Integer id : ids) {
+			items.add(new ProductBatchItemDTO(id, found.get(id)));
+		}
+		return items;
+	}
+
+	@Override
+	public ProductPageDTO viewCatalogPage(int afterId, int limit, String category, Double minCost, Double maxCost) {
+		Integer categoryId = null;
+		if (category != null && !category.isBlank()) {
+			categoryId = categoryService.findId(category);
+			if (categoryId == null) {
+				return new ProductPageDTO(List.of(), null);
+			}
+		}
+
+		// Fetch one extra row so we know whether another page exists without a COUNT query
+		List<ProductDTO> rows = productRepository.findCatalogPage(afterId, categoryId, minCost, maxCost,
+				PageRequest.of(0, limit + 1));
+
+		Integer nextCursor = null;
+		if (rows.size() > limit) {
+			rows = rows.subList(0, limit);
+			nextCursor = rows.get(limit - 1).getId();
+		}
+		return new ProductPageDTO(rows, nextCursor);
+	}
+
+	@Override
+	public ProductDetailDTO getProductDetail(int id, Integer buyerId) {
+		// The three lookups are independent, so they run side by side on the detail pool
+		CompletableFuture<ProductDetailDTO> detail = CompletableFuture
+				.supplyAsync(() -> productRepository.findProductDetail(id), detailExecutor);
+		CompletableFuture<List<ProductDTO>> related = CompletableFuture
+				.supplyAsync(() -> relatedProducts(id), detailExecutor);
+		CompletableFuture<Integer> cartQuantity = buyerId == null ? CompletableFuture.completedFuture(null)
+				: CompletableFuture.supplyAsync(
+						() -> cartRepository.findQuantityByBuyerIdAndProductId(buyerId, id), detailExecutor);
+
+		ProductDetailDTO dto = detail.join();
+		if (dto == null) {
+			return null;
+		}
+		dto.setRelated(related.join());
+		Integer quantity = cartQuantity.join();
+		if (buyerId != null) {
+			dto.setInCart(quantity != null);
+			dto.setCartQuantity(quantity != null ? quantity : 0);
+		}
+		return dto;
+	}
+
+	private List<ProductDTO> relatedProducts(int id) {
+		if (!catalogCache.isReady()) {
+			return productRepository.findRelatedProductDTOs(id, PageRequest.of(0, RELATED_LIMIT));
+		}
+		ProductDTO product = catalogCache.get(id);
+		if (product == null) {
+			return List.of();
+		}
+		Map<Integer, ProductDTO> related = new LinkedHashMap<>();
+		for (ProductDTO p : catalogCache.getByCategory(product.getCategory())) {
+			if (related.size() == RELATED_LIMIT) {
+				break;
+			}
+			if (p.getId() != id) {
+				related.put(p.getId(), p);
+			}
+		}
+		if (product.getFarmer_id() != 0) {
+			for (ProductDTO p : catalogCache.getByFarmer(product.getFarmer_id())) {
+				if (related.size() == RELATED_LIMIT) {
+					break;
+				}
+				if (p.getId() != id) {
+					related.putIfAbsent(p.getId(), p);
+				}
+			}
+		}
+		return List.copyOf(related.values());
+	}
+
+	@PreDestroy
+	public void shutdownDetailExecutor() {
+		detailExecutor.shutdown();
+	}
+
+	@Override
+	public ProductChangesDTO viewChangesSince(long since, int limit) {
+		// Change versions are unique, so the last one returned is an exact resume point
+		List<ProductChangeDTO> rows = productRepository.findChangesSince(since, PageRequest.of(0, limit + 1));
+		boolean hasMore = rows.size() > limit;
+		if (hasMore) {
+			rows = rows.subList(0, limit);
+		}
+		long nextSince = rows.isEmpty() ? since : rows.get(rows.size() - 1).getChangeVersion();
+		return new ProductChangesDTO(rows, nextSince, hasMore);
 	}
 
 	@Override
 	public List<Product> viewProductsByCategory(String category) {
 
-		return productRepository.findByCategory(category);
+		Integer categoryId = categoryService.findId(category);
+		return categoryId != null ? productRepository.findByCategoryRefIdAndDeletedFalse(categoryId) : List.of();
 	}
 
 	@Override
 	public List<Product> viewProductsByFarmer(int fid) {
 
 		Farmer farmer = farmerRepository.findById(fid).orElse(null);
-		return productRepository.findByFarmer(farmer);
+		return productRepository.findByFarmerAndDeletedFalse(farmer);
 	}
 
 	@Override
+	@Transactional
 	public String deleteProduct(int pid) {
-		Optional<Product> product = productRepository.findById(pid);
+		Optional<Product> product = productRepository.findByIdAndDeletedFalse(pid);
 		String msg = null;
 		if (product.isPresent()) {
+			// Soft delete: the row stays as a tombstone for delta sync, carts drop it right away
 			Product p = product.get();
-			productRepository.delete(p);
+			p.setDeleted(true);
+			stamp(p);
+			productRepository.save(p);
+			cartRepository.deleteByProductId(pid);
+			if (p.getImageHash() != null) {
+				imageReferenceService.release(p.getImageHash());
+				evictImageAfterCommit(pid);
+			}
+			eventPublisher.publishEvent(ProductCatalogEvent.removed(pid));
 			msg = "Product Deleted Successfully";
 		} else {
 			msg = "Product Not found";
@@ -61,20 +313,189 @@ public class ProductServiceImpl implements ProductService {
 	}
 
 	public Product viewProductById(int sid) {
-		return productRepository.findById(sid).orElse(null);
+		return productRepository.findByIdAndDeletedFalse(sid).orElse(null);
 	}
 
 	@Override
+	@Transactional
 	public String updateProduct(Product product) {
-
-		productRepository.save(product);
+		String oldHash = product.getLoadedImageHash();
+		boolean imageChanged = !Objects.equals(oldHash, product.getImageHash());
+		if (imageChanged && product.getImageHash() != null) {
+			imageReferenceService.discardOnRollback(imageOf(product));
+		}
+		applyCategory(product);
+		stamp(product);
+		if (imageChanged) {
+			if (product.getImageHash() != null) {
+				imageReferenceService.acquire(imageOf(product), 1);
+			}
+			if (oldHash != null) {
+				imageReferenceService.release(oldHash);
+				evictImageAfterCommit(product.getId());
+			}
+		}
+		// Flushed so the event carries the incremented version rather than the one read
+		Product saved = productRepository.saveAndFlush(product);
+		eventPublisher.publishEvent(ProductCatalogEvent.upserted(toDTO(saved)));
 		return "Product Updated Successfully";
 	}
 
+	// Until the write commits readers still see the old image, so its cached bytes stay valid
+	private void evictImageAfterCommit(int productId) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				productImageCache.invalidateProduct(productId);
+			}
+		});
+	}
+
+	private static final String BULK_UPDATE_SQL = "UPDATE product_table SET "
+			+ "product_cost = COALESCE(?, product_cost), "
+			+ "product_category = COALESCE(?, product_category), "
+			+ "category_id = COALESCE(?, category_id), "
+			+ "product_desc = COALESCE(?, product_desc), "
+			+ "product_version = product_version + 1, "
+			+ "product_change_version = ?, product_updated_at = ? "
+			+ "WHERE product_id = ? AND farmer_id = ? AND product_deleted = false AND (? IS NULL OR product_version = ?)";
+
+	// Only the listed columns are written, so the image columns are never read or rewritten
+	@Override
+	@Transactional
+	public BulkUpdateResultDTO bulkUpdate(int farmerId, List<BulkUpdateItemDTO> updates) {
+		Set<Integer> ids = new HashSet<>();
+		for (BulkUpdateItemDTO u : updates) {
+			validate(u);
+			// Each entry is matched to its row by change version below, which needs one entry per product
+			if (!ids.add(u.getId())) {
+				throw new IllegalArgumentException("Product " + u.getId() + ": listed more than once");
+			}
+		}
+
+		Category[] categories = new Category[updates.size()];
+		for (int i = 0; i < categories.length; i++) {
+			String label = updates.get(i).getCategory();
+			categories[i] = label != null ? categoryService.resolve(label) : null;
+		}
+
+		// Entries that turn out to conflict leave gaps in the change versions, which is harmless
+		long firstVersion = catalogVersionService.reserve(updates.size());
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		int[] counts = jdbcTemplate.batchUpdate(BULK_UPDATE_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				BulkUpdateItemDTO u = updates.get(i);
+				ps.setObject(1, u.getCost(), Types.DOUBLE);
+				Category category = categories[i];
+				ps.setObject(2, category != null ? category.getName() : null, Types.VARCHAR);
+				ps.setObject(3, category != null ? category.getId() : null, Types.INTEGER);
+				ps.setObject(4, trimmed(u.getDescription()), Types.VARCHAR);
+				ps.setLong(5, firstVersion + i);
+				ps.setTimestamp(6, now);
+				ps.setInt(7, u.getId());
+				ps.setInt(8, farmerId);
+				ps.setObject(9, u.getVersion(), Types.BIGINT);
+				ps.setObject(10, u.getVersion(), Types.BIGINT);
+			}
+
+			@Override
+			public int getBatchSize() {
+				return updates.size();
+			}
+		});
+
+		// With rewriteBatchedStatements the driver may report SUCCESS_NO_INFO instead of a row count; an
+		// entry then counts as written only if its row carries the change version that entry assigned
+		Map<Integer, Long> written = Map.of();
+		for (int count : counts) {
+			if (count == Statement.SUCCESS_NO_INFO) {
+				written = changeVersionsOf(ids);
+				break;
+			}
+		}
+
+		Set<Integer> updatedIds = new LinkedHashSet<>();
+		List<Integer> conflicts = new ArrayList<>();
+		for (int i = 0; i < updates.size(); i++) {
+			int count = counts[i];
+			int id = updates.get(i).getId();
+			if (count > 0 || count == Statement.SUCCESS_NO_INFO && Long.valueOf(firstVersion + i).equals(written.get(id))) {
+				updatedIds.add(id);
+			} else {
+				conflicts.add(id);
+			}
+		}
+
+		List<ProductDTO> updated = updatedIds.isEmpty() ? List.of()
+				: productRepository.findProductDTOsByIds(updatedIds);
+		if (!updated.isEmpty()) {
+			eventPublisher.publishEvent(ProductCatalogEvent.upserted(updated));
+		}
+		return new BulkUpdateResultDTO(updated, conflicts);
+	}
+
+	private Map<Integer, Long> changeVersionsOf(Set<Integer> ids) {
+		Map<Integer, Long> versions = new HashMap<>();
+		String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+		jdbcTemplate.query("SELECT product_id, product_change_version FROM product_table WHERE product_id IN (" + placeholders + ")",
+				rs -> {
+					versions.put(rs.getInt(1), rs.getLong(2));
+				}, ids.toArray());
+		return versions;
+	}
+
+	private static void validate(BulkUpdateItemDTO u) {
+		if (u.getCost() == null && u.getCategory() == null && u.getDescription() == null) {
+			throw new IllegalArgumentException("Product " + u.getId() + ": nothing to update");
+		}
+		if (u.getCost() != null && (!Double.isFinite(u.getCost()) || u.getCost() < 0)) {
+			throw new IllegalArgumentException("Product " + u.getId() + ": cost must be zero or more");
+		}
+		checkText(u.getId(), "category", u.getCategory(), 100);
+		checkText(u.getId(), "description", u.getDescription(), 500);
+	}
+
+	private static void checkText(int id, String field, String value, int maxLength) {
+		if (value != null && (value.isBlank() || value.trim().length() > maxLength)) {
+			throw new IllegalArgumentException("Product " + id + ": " + field + " must be 1 to " + maxLength + " characters");
+		}
+	}
+
+	private static String trimmed(String value) {
+		return value != null ? value.trim() : null;
+	}
+
 	public Product getProductById(int id) {
-	    return productRepository.findById(id)
+	    return productRepository.findByIdAndDeletedFalse(id)
 	            .orElse(null); // no throw
 	}
 
+	@Override
+	public StoredImage getProductImage(int id) {
+		return productRepository.findImageById(id);
+	}
+
+	// Products are filed under the category's canonical spelling, whatever case the farmer typed
+	private void applyCategory(Product p) {
+		Category category = categoryService.resolve(p.getCategory());
+		p.setCategoryRef(category);
+		p.setCategory(category.getName());
+	}
+
+	// Gives a write its change version; the caller's transaction holds the version counter until commit
+	private void stamp(Product p) {
+		p.setChangeVersion(catalogVersionService.reserve(1));
+		p.setUpdatedAt(LocalDateTime.now());
+	}
+
+	private static StoredImage imageOf(Product p) {
+		return new StoredImage(p.getImageHash(), p.getImageSize(), p.getImageContentType());
+	}
+
+	private static ProductDTO toDTO(Product p) {
+		return new ProductDTO(p.getId(), p.getName(), p.getCategory(), p.getDescription(), p.getCost(),
+				p.getFarmer() != null ? p.getFarmer().getId() : null, p.getImageHash(), p.getVersion());
+	}
 
 }
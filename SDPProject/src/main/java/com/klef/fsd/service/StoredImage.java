@@ -0,0 +1,26 @@
+package com.klef.fsd.service;
+
+// Result of writing an image into the content-addressed store
+public class StoredImage {
+	private final String hash;
+	private final long size;
+	private final String contentType;
+
+	public StoredImage(String hash, long size, String contentType) {
+		this.hash = hash;
+		this.size = size;
+		this.contentType = contentType;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+}
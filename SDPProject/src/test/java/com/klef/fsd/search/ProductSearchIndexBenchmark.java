@@ -0,0 +1,88 @@
+package com.klef.fsd.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.event.ProductCatalogEvent;
+
+/**
+ * Query latency of ProductSearchIndex over a synthetic catalog; SampleTime reports the p99.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.klef.fsd.search.ProductSearchIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+
+	private static final String[] WORDS = { "organic", "fresh", "tomato", "potato", "onion", "mango", "banana",
+			"apple", "spinach", "carrot", "rice", "wheat", "honey", "milk", "paneer", "ghee", "chilli", "garlic",
+			"ginger", "coriander", "basmati", "jaggery", "turmeric", "cabbage", "brinjal", "okra", "guava" };
+	private static final String[] CATEGORIES = { "Vegetables", "Fruits", "Grains", "Dairy", "Spices" };
+
+	@Param({ "10000", "50000" })
+	public int products;
+
+	private ProductSearchIndex index;
+	private String[] queries;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		List<ProductDTO> catalog = new ArrayList<>(products);
+		for (int i = 0; i < products; i++) {
+			String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+					+ Integer.toString(i, 36);
+			String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+					+ " " + WORDS[random.nextInt(WORDS.length)] + " from the farm";
+			catalog.add(new ProductDTO(i, name, CATEGORIES[random.nextInt(CATEGORIES.length)], description,
+					10 + random.nextInt(500), 1, null, 0));
+		}
+		index = new ProductSearchIndex();
+		index.onCatalogChanged(ProductCatalogEvent.upserted(catalog));
+
+		// Whole words, multi-word queries and one- or two-letter prefixes that expand widely
+		queries = new String[1024];
+		for (int i = 0; i < queries.length; i++) {
+			String word = WORDS[random.nextInt(WORDS.length)];
+			switch (i % 3) {
+			case 0 -> queries[i] = word;
+			case 1 -> queries[i] = word + " " + WORDS[random.nextInt(WORDS.length)];
+			default -> queries[i] = word.substring(0, 1 + random.nextInt(2));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<ProductSearchIndex.Hit> search() {
+		String query = queries[next++ & (queries.length - 1)];
+		return index.search(query, 20);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(ProductSearchIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,76 @@
+package com.klef.fsd.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lookup latency of SuggestionTrie over a synthetic catalog of product names.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.klef.fsd.search.SuggestionTrieBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestionTrieBenchmark {
+
+	private static final String[] WORDS = { "organic", "fresh", "tomato", "potato", "onion", "mango", "banana",
+			"apple", "spinach", "carrot", "rice", "wheat", "honey", "milk", "paneer", "ghee", "chilli", "garlic",
+			"ginger", "coriander", "basmati", "jaggery", "turmeric", "cabbage", "brinjal", "okra", "guava" };
+
+	@Param({ "100000", "500000" })
+	public int names;
+
+	private SuggestionTrie trie;
+	private String[] prefixes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		List<SuggestionTrie.Entry> entries = new ArrayList<>(names);
+		for (int i = 0; i < names; i++) {
+			String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+					+ Integer.toString(i, 36);
+			entries.add(new SuggestionTrie.Entry(name, "product", i, random.nextInt(1000)));
+		}
+		trie = SuggestionTrie.build(entries, 10);
+
+		// Mix of short, broad prefixes and longer, selective ones as typed into a search box
+		prefixes = new String[1024];
+		for (int i = 0; i < prefixes.length; i++) {
+			String word = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+			prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+		}
+	}
+
+	@Benchmark
+	public List<SuggestionTrie.Entry> lookup() {
+		String prefix = prefixes[next++ & (prefixes.length - 1)];
+		return trie.lookup(prefix, 10);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(SuggestionTrieBenchmark.class.getSimpleName()).build()).run();
+	}
+}
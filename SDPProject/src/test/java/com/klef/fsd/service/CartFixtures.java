@@ -0,0 +1,68 @@
+package com.klef.fsd.service;
+
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.klef.fsd.model.Buyer;
+import com.klef.fsd.model.Cart;
+import com.klef.fsd.model.Farmer;
+import com.klef.fsd.model.Product;
+
+// Rows and requests shared by the cart service tests
+final class CartFixtures {
+
+    private CartFixtures() {
+    }
+
+    static Farmer newFarmer(TestEntityManager entityManager) {
+        Farmer farmer = new Farmer();
+        farmer.setName("F");
+        farmer.setEmail("f@example.com");
+        farmer.setUsername("farmer");
+        farmer.setPassword("p");
+        farmer.setMobileno("1");
+        farmer.setNationalidno("n1");
+        farmer.setLocation("loc");
+        return entityManager.persist(farmer);
+    }
+
+    static Buyer newBuyer(TestEntityManager entityManager, String email) {
+        Buyer buyer = new Buyer();
+        buyer.setName("B");
+        buyer.setEmail(email);
+        buyer.setPassword("p");
+        buyer.setMobileno("1");
+        return entityManager.persist(buyer);
+    }
+
+    static Product newProduct(TestEntityManager entityManager, Farmer farmer, String name, double cost) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Veg");
+        product.setDescription("d");
+        product.setCost(cost);
+        product.setFarmer(farmer);
+        return entityManager.persist(product);
+    }
+
+    // A request as CartController builds it: only the ids are set
+    static Cart cart(int buyerId, int productId, int quantity) {
+        Buyer buyer = new Buyer();
+        buyer.setId(buyerId);
+        Product product = new Product();
+        product.setId(productId);
+        Cart cart = new Cart();
+        cart.setBuyer(buyer);
+        cart.setProduct(product);
+        cart.setQuantity(quantity);
+        return cart;
+    }
+
+    // For tests that commit: children first, for the foreign keys
+    static void deleteAll(JdbcTemplate jdbc) {
+        jdbc.update("DELETE FROM cart_table");
+        jdbc.update("DELETE FROM product_table");
+        jdbc.update("DELETE FROM buyer_table");
+        jdbc.update("DELETE FROM farmer_table");
+    }
+}
@@ -0,0 +1,326 @@
+package com.klef.fsd.service;
+
+import static com.klef.fsd.service.CartFixtures.cart;
+import static com.klef.fsd.service.CartFixtures.deleteAll;
+import static com.klef.fsd.service.CartFixtures.newBuyer;
+import static com.klef.fsd.service.CartFixtures.newFarmer;
+import static com.klef.fsd.service.CartFixtures.newProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.cache.CartSummaryCache;
+import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
+import com.klef.fsd.model.Buyer;
+import com.klef.fsd.model.Cart;
+import com.klef.fsd.model.Farmer;
+import com.klef.fsd.model.Product;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@JpaSliceTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:cart;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@Import({ CartServiceImpl.class, CartMutationLocks.class, CartSummaryCache.class })
+class CartServiceImplTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Farmer farmer;
+    private Buyer buyer;
+
+    // Joins the test transaction, or commits on its own in a non-transactional test
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> createFarmerAndBuyer());
+    }
+
+    private void createFarmerAndBuyer() {
+        farmer = newFarmer(entityManager);
+        buyer = newBuyer(entityManager, "b@example.com");
+    }
+
+    @Test
+    void cartOfTenItemsIsReadWithOneStatement() {
+        for (int i = 0; i < 10; i++) {
+            Cart cart = new Cart();
+            cart.setBuyer(buyer);
+            cart.setProduct(newProduct(entityManager, farmer, "product " + i, 10 + i));
+            cart.setQuantity(i + 1);
+            entityManager.persist(cart);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        List<CartDTO> items = cartService.getCartItemsByBuyerId(buyer.getId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(10, items.size());
+        assertEquals("product 0", items.get(0).getProduct().getName());
+        assertEquals(farmer.getId(), items.get(0).getProduct().getFarmer_id());
+        assertEquals(10, items.get(9).getQuantity());
+    }
+
+    @Test
+    void emptyCartIsToldApartFromUnknownBuyer() {
+        Buyer empty = newBuyer(entityManager, "empty@example.com");
+        entityManager.flush();
+
+        assertEquals(0, cartService.getCartItemsByBuyerId(empty.getId()).size());
+        assertNull(cartService.getCartItemsByBuyerId(empty.getId() + 1));
+    }
+
+    @Test
+    void addingAgainRaisesTheQuantityUpToTheLimit() {
+        Product product = newProduct(entityManager, farmer, "tomato", 20);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        CartDTO added = cartService.addToCart(cart(buyer.getId(), product.getId(), 2));
+        assertTrue(statistics.getPrepareStatementCount() <= 2, "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(2, added.getQuantity());
+        assertEquals("tomato", added.getProduct().getName());
+
+        assertEquals(5, cartService.addToCart(cart(buyer.getId(), product.getId(), 3)).getQuantity());
+        CartDTO capped = cartService.addToCart(cart(buyer.getId(), product.getId(), 9));
+        assertEquals(10, capped.getQuantity());
+        assertEquals(added.getId(), capped.getId());
+        assertEquals(1, cartService.getCartCountByBuyerId(buyer.getId()));
+    }
+
+    @Test
+    void eleventhProductIsRejectedButCartedOnesCanStillBeAdded() {
+        Product first = null;
+        for (int i = 0; i < 10; i++) {
+            Product product = newProduct(entityManager, farmer, "product " + i, 10);
+            first = first == null ? product : first;
+            cartService.addToCart(cart(buyer.getId(), product.getId(), 1));
+        }
+        Product eleventh = newProduct(entityManager, farmer, "product 10", 10);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cartService.addToCart(cart(buyer.getId(), eleventh.getId(), 1)));
+        assertEquals("Cart limit exceeded", e.getMessage());
+        assertEquals(2, cartService.addToCart(cart(buyer.getId(), first.getId(), 1)).getQuantity());
+        assertEquals(10, cartService.getCartCountByBuyerId(buyer.getId()));
+    }
+
+    @Test
+    void unknownOrDeletedProductIsRejected() {
+        Product deleted = newProduct(entityManager, farmer, "gone", 10);
+        deleted.setDeleted(true);
+        entityManager.flush();
+
+        assertEquals("Product does not exist", assertThrows(IllegalArgumentException.class,
+                () -> cartService.addToCart(cart(buyer.getId(), deleted.getId() + 1, 1))).getMessage());
+        assertEquals("Product does not exist", assertThrows(IllegalArgumentException.class,
+                () -> cartService.addToCart(cart(buyer.getId(), deleted.getId(), 1))).getMessage());
+    }
+
+    @Test
+    void unknownBuyerIsReportedFromTheForeignKey() {
+        Product product = newProduct(entityManager, farmer, "tomato", 20);
+        entityManager.flush();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cartService.addToCart(cart(buyer.getId() + 100, product.getId(), 1)));
+        assertEquals("Buyer does not exist", e.getMessage());
+    }
+
+    @Test
+    void batchIsAppliedWithAFixedNumberOfStatements() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(newProduct(entityManager, farmer, "product " + i, 10).getId());
+        }
+        for (int i = 0; i < 3; i++) {
+            cartService.addToCart(cart(buyer.getId(), ids.get(i), 1));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        List<CartDTO> items = cartService.applyBatch(buyer.getId(), List.of(
+                new CartOperationDTO("update", ids.get(0), 6),
+                new CartOperationDTO("remove", ids.get(1), 0),
+                new CartOperationDTO("add", ids.get(1), 2),
+                new CartOperationDTO("remove", ids.get(2), 0),
+                new CartOperationDTO("add", ids.get(3), 1),
+                new CartOperationDTO("add", ids.get(4), 3),
+                new CartOperationDTO("ADD", ids.get(4), 9)));
+
+        // buyer, products, cart, deletes, updates, inserts, result
+        assertTrue(statistics.getPrepareStatementCount() <= 7, "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(4, items.size());
+        assertEquals(List.of(ids.get(0), ids.get(1), ids.get(3), ids.get(4)),
+                items.stream().map(item -> item.getProduct().getId()).toList());
+        assertEquals(List.of(6, 2, 1, 10), items.stream().map(CartDTO::getQuantity).toList());
+    }
+
+    @Test
+    void rejectedBatchChangesNothing() {
+        Product product = newProduct(entityManager, farmer, "tomato", 20);
+        Product other = newProduct(entityManager, farmer, "onion", 20);
+        cartService.addToCart(cart(buyer.getId(), product.getId(), 1));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cartService.applyBatch(buyer.getId(), List.of(
+                        new CartOperationDTO("update", product.getId(), 5),
+                        new CartOperationDTO("remove", other.getId(), 0))));
+        assertEquals("Cart item does not exist for product " + other.getId(), e.getMessage());
+        assertEquals(1, cartService.getCartItemsByBuyerId(buyer.getId()).get(0).getQuantity());
+
+        assertEquals("Product does not exist: " + (other.getId() + 1), assertThrows(IllegalArgumentException.class,
+                () -> cartService.applyBatch(buyer.getId(), List.of(new CartOperationDTO("add", other.getId() + 1, 1))))
+                .getMessage());
+        assertEquals("Unknown cart operation: clear", assertThrows(IllegalArgumentException.class,
+                () -> cartService.applyBatch(buyer.getId(), List.of(new CartOperationDTO("clear", product.getId(), 1))))
+                .getMessage());
+    }
+
+    @Test
+    void summaryIsOneAggregateCachedUntilTheCartChanges() {
+        Product tomato = newProduct(entityManager, farmer, "tomato", 20);
+        Product onion = newProduct(entityManager, farmer, "onion", 12.5);
+        Product potato = newProduct(entityManager, farmer, "potato", 30);
+        CartDTO tomatoLine = cartService.addToCart(cart(buyer.getId(), tomato.getId(), 2));
+        cartService.addToCart(cart(buyer.getId(), onion.getId(), 4));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        CartSummaryDTO summary = cartService.getCartSummary(buyer.getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertSummary(2, 6, 90, summary);
+
+        statistics.clear();
+        assertEquals(2, cartService.getCartCountByBuyerId(buyer.getId()));
+        assertSummary(2, 6, 90, cartService.getCartSummary(buyer.getId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        cartService.addToCart(cart(buyer.getId(), potato.getId(), 1));
+        assertSummary(3, 7, 120, cartService.getCartSummary(buyer.getId()));
+        cartService.updateCartQuantity(buyer.getId(), onion.getId(), 2);
+        entityManager.flush();
+        assertSummary(3, 5, 95, cartService.getCartSummary(buyer.getId()));
+        cartService.removeCartItem(tomatoLine.getId());
+        assertEquals(2, cartService.getCartCountByBuyerId(buyer.getId()));
+        cartService.applyBatch(buyer.getId(), List.of(new CartOperationDTO("add", tomato.getId(), 1)));
+        assertSummary(3, 4, 75, cartService.getCartSummary(buyer.getId()));
+        cartService.clearCartByBuyerId(buyer.getId());
+        assertSummary(0, 0, 0, cartService.getCartSummary(buyer.getId()));
+    }
+
+    @Test
+    void summaryOfUnknownBuyerIsRejected() {
+        int unknown = buyer.getId() + 1;
+        assertEquals("Buyer does not exist",
+                assertThrows(IllegalArgumentException.class, () -> cartService.getCartSummary(unknown)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartCountByBuyerId(unknown));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentAddsForOneBuyerNeverExceedTheItemLimit() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Buyer other = transaction.execute(status -> newBuyer(entityManager, "other@example.com"));
+        List<Integer> productIds = transaction.execute(status -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                ids.add(newProduct(entityManager, farmer, "product " + i, 10).getId());
+            }
+            return ids;
+        });
+
+        try {
+            // Every thread adds every product, in its own order, for one of the two buyers
+            int threads = 16;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int buyerId = t % 2 == 0 ? buyer.getId() : other.getId();
+                List<Integer> order = new ArrayList<>(productIds);
+                Collections.shuffle(order, new Random(t));
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int productId : order) {
+                        try {
+                            cartService.addToCart(cart(buyerId, productId, 1));
+                        } catch (IllegalArgumentException e) {
+                            assertEquals("Cart limit exceeded", e.getMessage());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            pool.shutdown();
+
+            for (Buyer b : List.of(buyer, other)) {
+                assertEquals(10, cartService.getCartCountByBuyerId(b.getId()));
+                // Eight threads per buyer, each adding once to every product that made it in
+                for (CartDTO item : cartService.getCartItemsByBuyerId(b.getId())) {
+                    assertTrue(item.getQuantity() >= 1 && item.getQuantity() <= 8, "quantity " + item.getQuantity());
+                }
+            }
+        } finally {
+            deleteAll(jdbc);
+        }
+    }
+
+    private static void assertSummary(int itemCount, int totalQuantity, double totalAmount, CartSummaryDTO summary) {
+        assertEquals(itemCount, summary.getItemCount());
+        assertEquals(totalQuantity, summary.getTotalQuantity());
+        assertEquals(totalAmount, summary.getTotalAmount(), 0.001);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,150 @@
+package com.klef.fsd.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.cache.ProductImageCache;
+
+// Each product write is its own committed or rolled-back transaction, as in ProductServiceImpl
+@JpaSliceTest
+@TestPropertySource(properties = { "spring.datasource.url=jdbc:h2:mem:imageref;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"product.image.storage-dir=target/image-reference-test" })
+@Import({ ImageReferenceServiceImpl.class, ImageStorageServiceImpl.class, ProductImageCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageReferenceServiceImplTest {
+
+	@Autowired
+	private ImageReferenceService imageReferenceService;
+
+	@Autowired
+	private ImageStorageService imageStorageService;
+
+	@MockitoBean
+	private ImageVariantService imageVariantService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@AfterEach
+	void tearDown() {
+		jdbc.update("DELETE FROM image_reference");
+	}
+
+	@Test
+	void addUpdateSwapAndDeleteCollectEachImageAtZero() throws Exception {
+		StoredImage first = store("first");
+		inTransaction(() -> imageReferenceService.acquire(first, 1));
+		assertEquals(List.of(1), refCount(first));
+		assertTrue(imageStorageService.exists(first.getHash()));
+
+		// Update to a new image: the new one is counted, the old one reaches zero and is collected
+		StoredImage second = store("second");
+		inTransaction(() -> {
+			imageReferenceService.acquire(second, 1);
+			imageReferenceService.release(first.getHash());
+		});
+		assertEquals(List.of(), refCount(first));
+		assertFalse(imageStorageService.exists(first.getHash()));
+		assertEquals(List.of(1), refCount(second));
+		assertTrue(imageStorageService.exists(second.getHash()));
+
+		inTransaction(() -> imageReferenceService.release(second.getHash()));
+		assertEquals(List.of(), refCount(second));
+		assertFalse(imageStorageService.exists(second.getHash()));
+	}
+
+	@Test
+	void sharedImageIsKeptUntilTheLastProductReleasesIt() throws Exception {
+		StoredImage image = store("shared");
+		StoredImage again = store("shared");
+		assertEquals(image.getHash(), again.getHash());
+		inTransaction(() -> imageReferenceService.acquire(image, 1));
+		inTransaction(() -> imageReferenceService.acquire(again, 1));
+		assertEquals(List.of(2), refCount(image));
+
+		inTransaction(() -> imageReferenceService.release(image.getHash()));
+		assertEquals(List.of(1), refCount(image));
+		assertTrue(imageStorageService.exists(image.getHash()));
+
+		inTransaction(() -> imageReferenceService.release(image.getHash()));
+		assertFalse(imageStorageService.exists(image.getHash()));
+	}
+
+	@Test
+	void rolledBackWriteDiscardsItsUpload() throws Exception {
+		StoredImage image = store("rolled back");
+		inFailedTransaction(() -> {
+			imageReferenceService.discardOnRollback(image);
+			imageReferenceService.acquire(image, 1);
+		});
+		assertEquals(List.of(), refCount(image));
+		assertFalse(imageStorageService.exists(image.getHash()));
+	}
+
+	@Test
+	void rolledBackWriteKeepsAnImageOtherProductsShow() throws Exception {
+		StoredImage image = store("in use");
+		inTransaction(() -> imageReferenceService.acquire(image, 1));
+
+		StoredImage again = store("in use");
+		inFailedTransaction(() -> {
+			imageReferenceService.discardOnRollback(again);
+			imageReferenceService.acquire(again, 1);
+		});
+		assertEquals(List.of(1), refCount(image));
+		assertTrue(imageStorageService.exists(image.getHash()));
+	}
+
+	@Test
+	void uploadThatNeverReachedAProductIsDiscarded() throws Exception {
+		StoredImage image = store("never written");
+		imageReferenceService.discard(image);
+		assertEquals(List.of(), refCount(image));
+		assertFalse(imageStorageService.exists(image.getHash()));
+	}
+
+	// A PNG signature followed by the label, so each label is its own content-addressed file
+	private StoredImage store(String label) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+		bytes.write(label.getBytes(StandardCharsets.UTF_8));
+		return imageStorageService.storeUpload(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private List<Integer> refCount(StoredImage image) {
+		return jdbc.queryForList("SELECT image_ref_count FROM image_reference WHERE image_hash = ?", Integer.class,
+				image.getHash());
+	}
+
+	private void inTransaction(Runnable work) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+	}
+
+	private void inFailedTransaction(Runnable work) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			work.run();
+			status.setRollbackOnly();
+		});
+	}
+}
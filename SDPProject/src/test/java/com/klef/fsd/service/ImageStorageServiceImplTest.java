@@ -0,0 +1,122 @@
+package com.klef.fsd.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class ImageStorageServiceImplTest {
+
+	private static final long TWENTY_MB = DataSize.ofMegabytes(20).toBytes();
+
+	@TempDir
+	Path dir;
+
+	private ImageStorageServiceImpl newStore() throws Exception {
+		return new ImageStorageServiceImpl(dir.toString(), DataSize.ofMegabytes(20),
+				new String[] { "image/jpeg", "image/png" });
+	}
+
+	@Test
+	void concurrentTwentyMegabyteUploadsAllocateOnlyTheCopyBuffer() throws Exception {
+		ImageStorageServiceImpl store = newStore();
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		int uploads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(uploads);
+		try {
+			List<Future<long[]>> results = new ArrayList<>();
+			for (int i = 0; i < uploads; i++) {
+				int seed = i;
+				results.add(pool.submit(() -> {
+					long before = threads.getCurrentThreadAllocatedBytes();
+					StoredImage image = store.storeUpload(new JpegLikeStream(TWENTY_MB, seed));
+					long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+					return new long[] { image.getSize(), allocated };
+				}));
+			}
+			for (Future<long[]> result : results) {
+				long[] r = result.get();
+				assertEquals(TWENTY_MB, r[0]);
+				// A buffered copy would allocate at least 20MB per upload
+				assertTrue(r[1] < DataSize.ofMegabytes(1).toBytes(), "upload allocated " + r[1] + " bytes");
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void rejectsOversizedAndNonImageUploadsWithoutLeavingFiles() throws Exception {
+		ImageStorageServiceImpl store = newStore();
+
+		assertThrows(IllegalArgumentException.class, () -> store.storeUpload(new JpegLikeStream(TWENTY_MB + 1, 0)));
+		assertThrows(IllegalArgumentException.class,
+				() -> store.storeUpload(new ByteArrayInputStream("not an image at all".getBytes())));
+
+		try (var files = Files.list(dir.resolve("tmp"))) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void identicalContentIsStoredOnceUnderItsHash() throws Exception {
+		ImageStorageServiceImpl store = newStore();
+
+		StoredImage a = store.storeUpload(new JpegLikeStream(4096, 7));
+		StoredImage b = store.storeUpload(new JpegLikeStream(4096, 7));
+
+		assertEquals(a.getHash(), b.getHash());
+		assertEquals("image/jpeg", a.getContentType());
+		assertTrue(Files.exists(store.resolve(a.getHash())));
+	}
+
+	// Generates a JPEG signature followed by filler bytes without ever materializing the content
+	private static final class JpegLikeStream extends InputStream {
+		private static final byte[] HEADER = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0 };
+		private final long length;
+		private final int seed;
+		private long pos;
+
+		JpegLikeStream(long length, int seed) {
+			this.length = length;
+			this.seed = seed;
+		}
+
+		@Override
+		public int read() {
+			if (pos >= length) {
+				return -1;
+			}
+			int b = pos < HEADER.length ? HEADER[(int) pos] & 0xFF : (int) ((pos * 31 + seed) & 0xFF);
+			pos++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buf, int off, int len) {
+			if (pos >= length) {
+				return -1;
+			}
+			int n = (int) Math.min(len, length - pos);
+			for (int i = 0; i < n; i++) {
+				buf[off + i] = (byte) read();
+			}
+			return n;
+		}
+	}
+}
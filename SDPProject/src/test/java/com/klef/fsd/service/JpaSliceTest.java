@@ -0,0 +1,46 @@
+package com.klef.fsd.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.klef.fsd.model.Cart;
+import com.klef.fsd.repository.CartRepository;
+
+/*
+ * A JPA slice over H2 in MySQL mode, for the native ON DUPLICATE KEY UPDATE statements. Each test
+ * class names its own database with @TestPropertySource, so cached contexts never share tables.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest(properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = JpaSliceTest.Config.class)
+@interface JpaSliceTest {
+
+    /*
+     * The application class scans every component, so the slice gets its own configuration. It is
+     * deliberately not a @Configuration: the application's scan would pick it up from the test
+     * classpath and register the repositories twice.
+     */
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Cart.class)
+    @EnableJpaRepositories(basePackageClasses = CartRepository.class)
+    static class Config {
+    }
+}
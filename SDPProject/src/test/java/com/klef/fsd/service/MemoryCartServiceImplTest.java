@@ -0,0 +1,244 @@
+package com.klef.fsd.service;
+
+import static com.klef.fsd.service.CartFixtures.deleteAll;
+import static com.klef.fsd.service.CartFixtures.newBuyer;
+import static com.klef.fsd.service.CartFixtures.newFarmer;
+import static com.klef.fsd.service.CartFixtures.newProduct;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.klef.fsd.cache.CartSummaryCache;
+import com.klef.fsd.dto.CartDTO;
+import com.klef.fsd.dto.CartOperationDTO;
+import com.klef.fsd.dto.CartSummaryDTO;
+import com.klef.fsd.dto.ProductBatchItemDTO;
+import com.klef.fsd.dto.ProductDTO;
+import com.klef.fsd.model.Cart;
+import com.klef.fsd.model.Farmer;
+
+// Not transactional: the store commits on its own and the assertions read what reached the table
+@JpaSliceTest
+@TestPropertySource(properties = { "cart.storage.mode=memory",
+        "spring.datasource.url=jdbc:h2:mem:memorycart;MODE=MySQL;DB_CLOSE_DELAY=-1" })
+@Import({ MemoryCartServiceImpl.class, CartMutationLocks.class, CartSummaryCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MemoryCartServiceImplTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private int buyerId;
+    private final List<Integer> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Farmer farmer = newFarmer(entityManager);
+            buyerId = newBuyer(entityManager, "b@example.com").getId();
+            for (int i = 0; i < 3; i++) {
+                productIds.add(newProduct(entityManager, farmer, "product " + i, 10).getId());
+            }
+        });
+        when(productService.getProductDTOsByIds(anyList())).thenAnswer(call -> {
+            List<ProductBatchItemDTO> items = new ArrayList<>();
+            for (Object id : (List<?>) call.getArgument(0)) {
+                int productId = (Integer) id;
+                items.add(new ProductBatchItemDTO(productId,
+                        new ProductDTO(productId, "product", "Veg", "d", 10, null, null, 0)));
+            }
+            return items;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(jdbc);
+    }
+
+    @Test
+    void quantityChangesReachTheTableOnFlush() {
+        cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.addToCart(cart(productIds.get(1), 1));
+        assertEquals(2, storedQuantity(productIds.get(0)) + storedQuantity(productIds.get(1)));
+
+        cartService.updateCartQuantity(buyerId, productIds.get(0), 7);
+        cartService.addToCart(cart(productIds.get(1), 2));
+        assertEquals(7, cartService.getCartItemsByBuyerId(buyerId).get(0).getQuantity());
+        assertEquals(1, storedQuantity(productIds.get(0)));
+
+        ((MemoryCartServiceImpl) cartService).flush();
+        assertEquals(7, storedQuantity(productIds.get(0)));
+        assertEquals(3, storedQuantity(productIds.get(1)));
+    }
+
+    @Test
+    void freshInstanceReloadsCartsFromTheTable() {
+        cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.addToCart(cart(productIds.get(2), 1));
+        cartService.updateCartQuantity(buyerId, productIds.get(2), 4);
+        ((MemoryCartServiceImpl) cartService).flush();
+
+        // As after a restart: nothing in memory, everything read back from cart_table
+        MemoryCartServiceImpl restarted = beanFactory.createBean(MemoryCartServiceImpl.class);
+        List<CartDTO> items = restarted.getCartItemsByBuyerId(buyerId);
+        assertEquals(2, items.size());
+        assertEquals(productIds.get(2).intValue(), items.get(1).getProduct().getId());
+        assertEquals(4, items.get(1).getQuantity());
+        assertEquals(2, restarted.getCartCountByBuyerId(buyerId));
+    }
+
+    @Test
+    void clearAndRemoveAreWrittenThrough() {
+        CartDTO first = cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.addToCart(cart(productIds.get(1), 1));
+        cartService.updateCartQuantity(buyerId, productIds.get(1), 5);
+
+        cartService.removeCartItem(first.getId());
+        assertEquals(1, cartService.getCartCountByBuyerId(buyerId));
+        assertEquals(1, rows());
+
+        cartService.clearCartByBuyerId(buyerId);
+        assertEquals(0, rows());
+        assertEquals(0, cartService.getCartItemsByBuyerId(buyerId).size());
+        ((MemoryCartServiceImpl) cartService).flush();
+        assertEquals(0, rows());
+    }
+
+    @Test
+    void batchStartsFromTheQuantitiesNotYetFlushed() {
+        cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.addToCart(cart(productIds.get(1), 1));
+        cartService.updateCartQuantity(buyerId, productIds.get(0), 6);
+
+        List<CartDTO> items = cartService.applyBatch(buyerId, List.of(new CartOperationDTO("add", productIds.get(0), 2),
+                new CartOperationDTO("remove", productIds.get(1), 0), new CartOperationDTO("add", productIds.get(2), 1)));
+        assertEquals(2, items.size());
+        assertEquals(8, items.get(0).getQuantity());
+        assertEquals(8, storedQuantity(productIds.get(0)));
+        assertEquals(2, cartService.getCartCountByBuyerId(buyerId));
+        assertEquals(8, cartService.getCartItemsByBuyerId(buyerId).get(0).getQuantity());
+    }
+
+    @Test
+    void batchWaitsForAFlushOfTheSameBuyerToFinish() throws Exception {
+        cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.updateCartQuantity(buyerId, productIds.get(0), 5);
+
+        // Holds the flush inside its write, as a slow batch update would
+        AtomicReference<Thread> flusher = new AtomicReference<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(call -> {
+            if (Thread.currentThread() == flusher.get()) {
+                writing.countDown();
+                release.await();
+            }
+            return call.callRealMethod();
+        }).when(jdbc).batchUpdate(anyString(), anyList());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> flush = pool.submit(() -> {
+                flusher.set(Thread.currentThread());
+                ((MemoryCartServiceImpl) cartService).flush();
+            });
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            Future<List<CartDTO>> batch = pool.submit(() -> cartService.applyBatch(buyerId,
+                    List.of(new CartOperationDTO("add", productIds.get(0), 1))));
+            // Time for the batch to overtake the write, were it not held back by the buyer's lock
+            Thread.sleep(200);
+            release.countDown();
+            flush.get(5, TimeUnit.SECONDS);
+
+            assertEquals(6, batch.get(5, TimeUnit.SECONDS).get(0).getQuantity());
+            assertEquals(6, storedQuantity(productIds.get(0)));
+            ((MemoryCartServiceImpl) cartService).flush();
+            assertEquals(6, storedQuantity(productIds.get(0)));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateOfAMissingProductLeavesTheLineUntouched() {
+        cartService.addToCart(cart(productIds.get(0), 2));
+        when(productService.getProductDTOsByIds(List.of(productIds.get(0))))
+                .thenReturn(List.of(new ProductBatchItemDTO(productIds.get(0), null)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cartService.updateCartQuantity(buyerId, productIds.get(0), 9));
+        ((MemoryCartServiceImpl) cartService).flush();
+        assertEquals(2, storedQuantity(productIds.get(0)));
+    }
+
+    @Test
+    void summaryIncludesQuantitiesNotYetFlushed() {
+        cartService.addToCart(cart(productIds.get(0), 1));
+        cartService.addToCart(cart(productIds.get(1), 2));
+        cartService.updateCartQuantity(buyerId, productIds.get(0), 5);
+
+        CartSummaryDTO summary = cartService.getCartSummary(buyerId);
+        assertEquals(2, summary.getItemCount());
+        assertEquals(7, summary.getTotalQuantity());
+        assertEquals(70, summary.getTotalAmount(), 0.001);
+    }
+
+    private int storedQuantity(int productId) {
+        return jdbc.queryForObject("SELECT quantity FROM cart_table WHERE buyer_id = ? AND product_id = ?",
+                Integer.class, buyerId, productId);
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM cart_table WHERE buyer_id = ?", Integer.class, buyerId);
+    }
+
+    private Cart cart(int productId, int quantity) {
+        return CartFixtures.cart(buyerId, productId, quantity);
+    }
+}
@@ -7,7 +7,7 @@ import 'react-toastify/dist/ReactToastify.css';
 import { useNavigate } from 'react-router-dom';
 
 export default function BuyerHome() {
-  const [data, setData] = useState([]);
+  const [sections, setSections] = useState([]);
   const [error, setError] = useState("");
   const [loading, setLoading] = useState(true);
   const [productsVisible, setProductsVisible] = useState(false);
@@ -40,24 +40,24 @@ export default function BuyerHome() {
     };
   }, []);
 
-  const shuffleArray = (array) => {
-    const shuffled = [...array];
-    for (let i = shuffled.length - 1; i > 0; i--) {
-      const j = Math.floor(Math.random() * (i + 1));
-      [shuffled[i], shuffled[j]] = [shuffled[j], shuffled[i]];
-    }
-    return shuffled;
-  };
-
   const fetchProducts = async () => {
     try {
       setLoading(true);
       setProductsVisible(false);
       setImagesLoaded(false);
       
-      const response = await axios.get(`${config.url}/product/viewallproducts`);
-      const shuffledProducts = shuffleArray(response.data);
-      setData(shuffledProducts);
+      // One request for the whole page: newest, top sellers and a sample of each category
+      const buyerData = JSON.parse(sessionStorage.getItem('buyer'));
+      const response = await axios.get(`${config.url}/buyer/home/${buyerData?.id ?? 0}`);
+      const feed = response.data;
+      setSections([
+        { title: "New Arrivals", products: feed.newest },
+        { title: "Top Sellers", products: feed.topSellers },
+        ...feed.categories.map((sample) => ({
+          title: `${sample.category} (${sample.count})`,
+          products: sample.products
+        }))
+      ].filter((section) => section.products.length > 0));
       setError("");
       
       setTimeout(() => {
@@ -126,6 +126,72 @@ export default function BuyerHome() {
     navigate(`/product/${productId}`);
   };
 
+  const renderProductCard = (product, index) => (
+    <div
+      key={product.id}
+      className={`bg-white rounded-lg overflow-hidden shadow-md hover:shadow-lg transition-all duration-300 border border-gray-200 transform ${
+        productsVisible ? 'opacity-100 translate-y-0' : 'opacity-0 translate-y-4'
+      } cursor-pointer`}
+      style={{
+        transitionDelay: `${index * 100}ms`,
+        transitionDuration: '500ms',
+      }}
+      onClick={() => navigateToProductDetail(product.id)}
+    >
+      <div className="relative p-4 bg-gray-100 flex justify-center items-center h-48">
+        {imagesLoaded ? (
+          <img 
+            src={`${config.url}/product/displayproductimage?id=${product.id}&size=480`} 
+            alt={product.name} 
+            className="max-h-full max-w-full object-contain animate-image-fade-in"
+            style={{ animationDelay: `${index * 150}ms` }}
+            onError={(e) => {
+              e.target.src = "https://via.placeholder.com/300x200?text=Product+Image";
+            }}
+          />
+        ) : (
+          <div className="w-full h-full flex items-center justify-center bg-gray-200">
+            <div className="text-gray-400 flex flex-col items-center animate-pulse">
+              <svg xmlns="http://www.w3.org/2000/svg" className="h-12 w-12 mb-2" fill="none" viewBox="0 0 24 24" stroke="currentColor">
+                <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M4 16l4.586-4.586a2 2 0 012.828 0L16 16m-2-2l1.586-1.586a2 2 0 012.828 0L20 14m-6-6h.01M6 20h12a2 2 0 002-2V6a2 2 0 00-2-2H6a2 2 0 00-2 2v12a2 2 0 002 2z" />
+              </svg>
+              <span className="text-xs">Loading image...</span>
+            </div>
+          </div>
+        )}
+        <div className="absolute top-2 right-2 bg-green-500 text-white text-xs font-bold px-2 py-1 rounded-full animate-content-fade-in">
+          ₹{product.cost}
+        </div>
+      </div>
+      <div className="p-4 animate-content-fade-in" style={{ animationDelay: `${index * 100}ms` }}>
+        <div className="mb-2">
+          <p className="text-xs text-gray-500 uppercase tracking-wider">{product.category}</p>
+          <h3 className="font-semibold text-gray-800 text-lg truncate" title={product.name}>
+            {product.name}
+          </h3>
+        </div>
+        <div className="mt-4 space-y-2">
+          <button 
+            onClick={(e) => handleBuyNow(product, e)}
+            className="w-full bg-green-600 text-white py-2 rounded font-medium hover:bg-green-700 transition-colors"
+          >
+            Buy Now
+          </button>
+          <button 
+            onClick={(e) => {
+              e.stopPropagation();
+              handleAddToCart(product);
+            }}
+            className="w-full bg-white text-green-600 py-2 rounded font-medium border border-green-600 hover:bg-green-50 transition-colors flex items-center justify-center"
+          >
+            <FaShoppingCart className="mr-2" />
+            Add to Cart
+          </button>
+        </div>
+      </div>
+    </div>
+  );
+
   return (
     <div className="container mx-auto px-4 py-8">
       <h2 className="text-3xl font-bold text-gray-800 mb-8">
@@ -166,76 +232,19 @@ export default function BuyerHome() {
             </div>
           ))}
         </div>
-      ) : data.length === 0 ? (
+      ) : sections.length === 0 ? (
         <div className="flex flex-col items-center justify-center h-64 bg-gray-50 rounded-lg border-2 border-dashed border-gray-300">
           <p className="text-gray-500 mb-4">No products found.</p>
         </div>
       ) : (
-        <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 lg:grid-cols-4 gap-6">
-          {data.map((product, index) => (
-            <div
-              key={product.id}
-              className={`bg-white rounded-lg overflow-hidden shadow-md hover:shadow-lg transition-all duration-300 border border-gray-200 transform ${
-                productsVisible ? 'opacity-100 translate-y-0' : 'opacity-0 translate-y-4'
-              } cursor-pointer`}
-              style={{
-                transitionDelay: `${index * 100}ms`,
-                transitionDuration: '500ms',
-              }}
-              onClick={() => navigateToProductDetail(product.id)}
-            >
-              <div className="relative p-4 bg-gray-100 flex justify-center items-center h-48">
-                {imagesLoaded ? (
-                  <img 
-                    src={`${config.url}/product/displayproductimage?id=${product.id}`} 
-                    alt={product.name} 
-                    className="max-h-full max-w-full object-contain animate-image-fade-in"
-                    style={{ animationDelay: `${index * 150}ms` }}
-                    onError={(e) => {
-                      e.target.src = "https://via.placeholder.com/300x200?text=Product+Image";
-                    }}
-                  />
-                ) : (
-                  <div className="w-full h-full flex items-center justify-center bg-gray-200">
-                    <div className="text-gray-400 flex flex-col items-center animate-pulse">
-                      <svg xmlns="http://www.w3.org/2000/svg" className="h-12 w-12 mb-2" fill="none" viewBox="0 0 24 24" stroke="currentColor">
-                        <path strokeLinecap="round" strokeLinejoin="round" strokeWidth={2} d="M4 16l4.586-4.586a2 2 0 012.828 0L16 16m-2-2l1.586-1.586a2 2 0 012.828 0L20 14m-6-6h.01M6 20h12a2 2 0 002-2V6a2 2 0 00-2-2H6a2 2 0 00-2 2v12a2 2 0 002 2z" />
-                      </svg>
-                      <span className="text-xs">Loading image...</span>
-                    </div>
-                  </div>
-                )}
-                <div className="absolute top-2 right-2 bg-green-500 text-white text-xs font-bold px-2 py-1 rounded-full animate-content-fade-in">
-                  ₹{product.cost}
-                </div>
+        <div className="space-y-10">
+          {sections.map((section) => (
+            <section key={section.title}>
+              <h3 className="text-2xl font-semibold text-gray-800 mb-4">{section.title}</h3>
+              <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 lg:grid-cols-4 gap-6">
+                {section.products.map(renderProductCard)}
               </div>
-              <div className="p-4 animate-content-fade-in" style={{ animationDelay: `${index * 100}ms` }}>
-                <div className="mb-2">
-                  <p className="text-xs text-gray-500 uppercase tracking-wider">{product.category}</p>
-                  <h3 className="font-semibold text-gray-800 text-lg truncate" title={product.name}>
-                    {product.name}
-                  </h3>
-                </div>
-                <div className="mt-4 space-y-2">
-                  <button 
-                    onClick={(e) => handleBuyNow(product, e)}
-                    className="w-full bg-green-600 text-white py-2 rounded font-medium hover:bg-green-700 transition-colors"
-                  >
-                    Buy Now
-                  </button>
-                  <button 
-                    onClick={(e) => {
-                      e.stopPropagation();
-                      handleAddToCart(product);
-                    }}
-                    className="w-full bg-white text-green-600 py-2 rounded font-medium border border-green-600 hover:bg-green-50 transition-colors flex items-center justify-center"
-                  >
-                    <FaShoppingCart className="mr-2" />
-                    Add to Cart
-                  </button>
-                </div>
-              </div>
-            </div>
+            </section>
           ))}
         </div>
       )}
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import { FaTrash, FaArrowLeft, FaShoppingCart, FaMapMarkerAlt, FaPlus, FaCheckCircle } from 'react-icons/fa';
 import { toast } from 'react-toastify';
@@ -23,9 +23,16 @@ export default function Cart() {
   const [checkoutStep, setCheckoutStep] = useState('cart');
   const [imagesLoaded, setImagesLoaded] = useState({});
   const navigate = useNavigate();
+  // Quantity edits not yet sent, by product id; sent together in one /cart/batch call
+  const pendingQuantities = useRef(new Map());
+  const quantityTimer = useRef(null);
 
   useEffect(() => {
     fetchCartItems();
+    // Leaving the page sends whatever quantity edits are still waiting
+    return () => {
+      flushQuantityChanges();
+    };
   }, []);
 
   useEffect(() => {
@@ -151,6 +158,7 @@ export default function Cart() {
 
   const handleRemoveItem = async (cartId) => {
     try {
+      await flushQuantityChanges();
       await axios.delete(`${config.url}/cart/remove/${cartId}`);
       await fetchCartItems();
       toast.success('Item removed from cart');
@@ -170,6 +178,8 @@ export default function Cart() {
         }
 
         const buyerId = buyerData.id;
+        clearTimeout(quantityTimer.current);
+        pendingQuantities.current = new Map();
         await axios.delete(`${config.url}/cart/clear/${buyerId}`);
         setCartItems([]);
         toast.info('Cart has been cleared');
@@ -180,15 +190,12 @@ export default function Cart() {
     }
   };
 
-  const handleQuantityChange = async (cartItem, newQuantity) => {
-    if (newQuantity < 1) newQuantity = 1;
-    if (newQuantity > 10) newQuantity = 10;
-
-    setCartItems(prevItems =>
-      prevItems.map(item =>
-        item.id === cartItem.id ? { ...item, quantity: newQuantity } : item
-      )
-    );
+  const flushQuantityChanges = async () => {
+    clearTimeout(quantityTimer.current);
+    quantityTimer.current = null;
+    const changes = pendingQuantities.current;
+    if (changes.size === 0) return;
+    pendingQuantities.current = new Map();
 
     try {
       const buyerData = JSON.parse(sessionStorage.getItem('buyer'));
@@ -197,25 +204,37 @@ export default function Cart() {
         return;
       }
 
-      const buyerId = buyerData.id;
-      await axios.put(`${config.url}/cart/update`, null, {
-        params: {
-          buyerId: buyerId,
-          productId: cartItem.product.id,
-          quantity: newQuantity
-        }
+      const response = await axios.post(`${config.url}/cart/batch`, {
+        buyerId: buyerData.id,
+        operations: [...changes].map(([productId, quantity]) => ({ type: 'update', productId, quantity }))
       });
+      // Edits made while this was in flight stay on screen until their own batch answers
+      if (pendingQuantities.current.size === 0) {
+        setCartItems(response.data);
+      }
     } catch (err) {
       console.error("Error updating quantity:", err);
-      toast.error('Failed to update quantity: ' + (err.response?.data?.message || err.message));
-      setCartItems(prevItems =>
-        prevItems.map(item =>
-          item.id === cartItem.id ? { ...item, quantity: cartItem.quantity } : item
-        )
-      );
+      toast.error('Failed to update quantity: ' + (err.response?.data || err.message));
+      await fetchCartItems();
     }
   };
 
+  const handleQuantityChange = (cartItem, newQuantity) => {
+    if (newQuantity < 1) newQuantity = 1;
+    if (newQuantity > 10) newQuantity = 10;
+
+    setCartItems(prevItems =>
+      prevItems.map(item =>
+        item.id === cartItem.id ? { ...item, quantity: newQuantity } : item
+      )
+    );
+
+    // Rapid clicks across several lines end up in a single request
+    pendingQuantities.current.set(cartItem.product.id, newQuantity);
+    clearTimeout(quantityTimer.current);
+    quantityTimer.current = setTimeout(flushQuantityChanges, 500);
+  };
+
   const handleImageLoad = (itemId) => {
     setImagesLoaded(prev => ({
       ...prev,
@@ -223,11 +242,12 @@ export default function Cart() {
     }));
   };
 
-  const proceedToAddress = () => {
+  const proceedToAddress = async () => {
     if (cartItems.length === 0) {
       toast.error('Your cart is empty');
       return;
     }
+    await flushQuantityChanges();
     setCheckoutStep('address');
   };
 
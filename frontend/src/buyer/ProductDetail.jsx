@@ -29,16 +29,12 @@ export default function ProductDetail() {
       setLoading(true);
       setImageLoaded(false);
       try {
-        const response = await axios.get(`${config.url}/product/getproduct/${productId}`);
-        setProduct(response.data);
-        
-        if (response.data && response.data.category) {
-          const allProductsResponse = await axios.get(`${config.url}/product/viewallproducts`);
-          const related = allProductsResponse.data
-            .filter(p => p.category === response.data.category && p.id !== response.data.id)
-            .slice(0, 4);
-          setRelatedProducts(related);
-        }
+        const buyerData = JSON.parse(sessionStorage.getItem('buyer'));
+        const response = await axios.get(`${config.url}/product/${productId}/detail`, {
+          params: buyerData?.id ? { buyerId: buyerData.id } : {}
+        });
+        setProduct(response.data.product);
+        setRelatedProducts(response.data.related);
         
       } catch (err) {
         console.error("Error fetching product details:", err);
@@ -236,7 +236,7 @@ export default function ViewProductsBySeller() {
               <div className="relative h-48 bg-gray-100 overflow-hidden">
                 {imagesLoaded ? (
                   <img
-                    src={`${config.url}/product/displayproductimage?id=${product.id}`}
+                    src={`${config.url}/product/displayproductimage?id=${product.id}&size=480`}
                     alt={product.name}
                     className="w-full h-full object-cover transform hover:scale-105 transition-transform duration-300 animate-image-fade-in"
                     onError={(e) => {